@@ -0,0 +1,246 @@
+package net.bigpoint.assessment.gasstation.delivery;
+
+import java.io.Closeable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.FixedPoint;
+import net.bigpoint.assessment.gasstation.impl.FuelTank;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.StationListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * This class sends tankers to a gas station to top up its pumps, or the tank feeding them: on a fixed schedule, when a
+ * pump or a tank falls below a reorder point, or on demand.
+ *
+ * Deliveries run on a thread of their own. A pump is topped up by swapping it for a new one (see
+ * GasStationImpl.refillGasPump(GasPump, double)), which only holds the reservation lock of its gas type for the swap,
+ * and a FuelTank with a compare-and-set, so customers keep buying gas meanwhile. The reorder points are checked as gas
+ * is pumped, and a pump or a tank never has more than one tanker on its way.
+ *
+ * The service also forecasts when every gas type will run out, from the gas left and the liters sold in the last
+ * minute.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class TankerService implements StationListener, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TankerService.class);
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    private final GasStationImpl gasStation;
+    private final ScheduledThreadPoolExecutor tankers;
+
+    private final AtomicReferenceArray<ReorderPoint> reorderPoints = new AtomicReferenceArray<ReorderPoint>(
+            GAS_TYPES.length);
+    // pumps and tanks
+    private final Set<Object> awaitingTanker = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder deliveries = new LongAdder();
+    private final Map<GasType, LongAdder> millilitersDelivered = new EnumMap<GasType, LongAdder>(GasType.class);
+
+    public TankerService(GasStationImpl gasStation) {
+
+        this.gasStation = gasStation;
+
+        tankers = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "gas-station-tanker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tankers.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        for (GasType gasType : GAS_TYPES) {
+            millilitersDelivered.put(gasType, new LongAdder());
+        }
+
+        gasStation.addStationListener(this);
+    }
+
+    /**
+     * Sends a tanker right away that tops up every pump of the given gas type, or the tank feeding them.
+     *
+     * @return a future completed with the number of pumps or tanks topped up
+     */
+    public CompletableFuture<Integer> deliver(GasType type, double litersPerPump) {
+        return CompletableFuture.supplyAsync(() -> topUp(type, litersPerPump), tankers);
+    }
+
+    /**
+     * Sends a tanker that tops up every pump of the given gas type, or the tank feeding them, once every period,
+     * starting one period from now. A delivery that fails is logged and the next one still comes.
+     */
+    public void scheduleDeliveries(GasType type, double litersPerPump, long period, TimeUnit unit) {
+        tankers.scheduleAtFixedRate(() -> {
+            try {
+                topUp(type, litersPerPump);
+            } catch (RuntimeException e) {
+                // an exception would cancel all the deliveries after this one without a trace
+                logger.error("A scheduled delivery of {} failed", type, e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Sends a tanker to any pump of the given gas type, or to the tank feeding them, that falls below a threshold. The
+     * tanker arrives after the lead time and tops up that pump, or that tank, only.
+     */
+    public void setReorderPoint(GasType type, double thresholdInLiters, double litersPerPump, long leadTime,
+            TimeUnit unit) {
+        reorderPoints.set(type.ordinal(), new ReorderPoint(thresholdInLiters, litersPerPump, unit.toNanos(leadTime)));
+    }
+
+    public void removeReorderPoint(GasType type) {
+        reorderPoints.set(type.ordinal(), null);
+    }
+
+    @Override
+    public void onGasPumped(GasPump gasPump, long milliliters) {
+
+        ReorderPoint reorderPoint = reorderPoints.get(gasPump.getGasType().ordinal());
+        if (reorderPoint == null) {
+            return;
+        }
+
+        // called on the thread that just pumped, so the pump is not in use
+        if (gasPump.getRemainingAmount() < reorderPoint.thresholdInLiters && awaitingTanker.add(gasPump)) {
+            sendTanker(gasPump, () -> topUp(gasPump, reorderPoint.litersPerPump), reorderPoint);
+        }
+    }
+
+    @Override
+    public void onFuelDrawn(GasPump gasPump, long milliliters) {
+
+        ReorderPoint reorderPoint = reorderPoints.get(gasPump.getGasType().ordinal());
+        if (reorderPoint == null) {
+            return;
+        }
+
+        FuelTank fuelTank = gasStation.getFuelTank(gasPump.getGasType());
+        if (fuelTank != null && fuelTank.getRemainingAmount() < reorderPoint.thresholdInLiters
+                && awaitingTanker.add(fuelTank)) {
+            sendTanker(fuelTank, () -> topUp(fuelTank, reorderPoint.litersPerPump), reorderPoint);
+        }
+    }
+
+    private void sendTanker(Object destination, Runnable delivery, ReorderPoint reorderPoint) {
+
+        tankers.schedule(() -> {
+            try {
+                delivery.run();
+            } catch (RuntimeException e) {
+                logger.error("A tanker sent to {} failed to deliver", destination, e);
+            } finally {
+                awaitingTanker.remove(destination);
+            }
+        }, reorderPoint.leadTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private int topUp(GasType type, double litersPerPump) {
+
+        FuelTank fuelTank = gasStation.getFuelTank(type);
+        if (fuelTank != null) {
+            topUp(fuelTank, litersPerPump);
+            return 1;
+        }
+
+        int toppedUp = 0;
+
+        for (GasPump gasPump : gasStation.getGasPumps()) {
+            if (gasPump.getGasType() == type && topUp(gasPump, litersPerPump)) {
+                toppedUp++;
+            }
+        }
+
+        return toppedUp;
+    }
+
+    /**
+     * @return false if the pump was taken out of the gas station, or replaced, before the tanker arrived
+     */
+    private boolean topUp(GasPump gasPump, double liters) {
+
+        if (gasStation.refillGasPump(gasPump, liters) == null) {
+            return false;
+        }
+
+        deliveries.increment();
+        millilitersDelivered.get(gasPump.getGasType()).add(FixedPoint.toMilliliters(liters));
+        return true;
+    }
+
+    private void topUp(FuelTank fuelTank, double liters) {
+        double delivered = gasStation.deliverToFuelTank(fuelTank.getGasType(), liters);
+        deliveries.increment();
+        millilitersDelivered.get(fuelTank.getGasType()).add(FixedPoint.toMilliliters(delivered));
+    }
+
+    /**
+     * Forecasts when a gas type will run out if it keeps selling as it did in the last minute and no tanker comes.
+     *
+     * @return the time left, or Long.MAX_VALUE if the gas type is not selling
+     */
+    public long forecastStockOut(GasType type, TimeUnit unit) {
+
+        double litersPerMinute = gasStation.getMetrics().getSalesRates().getLitersPerMinute(type);
+        if (litersPerMinute <= 0.0d) {
+            return Long.MAX_VALUE;
+        }
+
+        double nanosLeft = gasStation.getRemainingAmount(type) / litersPerMinute * TimeUnit.MINUTES.toNanos(1L);
+        return unit.convert((long) nanosLeft, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of pumps and tanks topped up so far
+     */
+    public long getNumberOfDeliveries() {
+        return deliveries.sum();
+    }
+
+    public double getAmountDelivered(GasType type) {
+        return FixedPoint.toLiters(millilitersDelivered.get(type).sum());
+    }
+
+    /**
+     * Stops sending tankers. Tankers already on their way are called back.
+     */
+    @Override
+    public void close() {
+        gasStation.removeStationListener(this);
+        tankers.shutdownNow();
+    }
+
+    /**
+     * When and how much gas to reorder for a gas type.
+     */
+    private static final class ReorderPoint {
+
+        private final double thresholdInLiters;
+        private final double litersPerPump;
+        private final long leadTimeNanos;
+
+        ReorderPoint(double thresholdInLiters, double litersPerPump, long leadTimeNanos) {
+            this.thresholdInLiters = thresholdInLiters;
+            this.litersPerPump = litersPerPump;
+            this.leadTimeNanos = leadTimeNanos;
+        }
+
+    }
+
+}
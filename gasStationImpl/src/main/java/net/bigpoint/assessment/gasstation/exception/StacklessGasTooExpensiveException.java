@@ -0,0 +1,63 @@
+package net.bigpoint.assessment.gasstation.exception;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
+
+/**
+ * This exception is thrown whenever gas could not be bought because the price was too high. It tells which type of gas
+ * was too expensive.
+ * 
+ * Price rejections are part of the normal traffic of a gas station, so this exception does not capture a stack trace
+ * and there is a single, shared instance per gas type. Do not attach suppressed exceptions or causes to it: the
+ * stages of a CompletableFuture may attach suppressed exceptions to the exception it completed with, so futures are
+ * completed with a new instance instead, which still does not capture a stack trace.
+ * 
+ */
+public final class StacklessGasTooExpensiveException extends GasTooExpensiveException {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = 4935383637862227404L;
+
+    private static final StacklessGasTooExpensiveException[] INSTANCES = new StacklessGasTooExpensiveException[GasType
+            .values().length];
+
+    static {
+        for (GasType gasType : GasType.values()) {
+            INSTANCES[gasType.ordinal()] = new StacklessGasTooExpensiveException(gasType);
+        }
+    }
+
+    private final GasType gasType;
+
+    private StacklessGasTooExpensiveException(GasType gasType) {
+        this.gasType = gasType;
+    }
+
+    public static StacklessGasTooExpensiveException forGasType(GasType gasType) {
+        return INSTANCES[gasType.ordinal()];
+    }
+
+    /**
+     * @return an instance of its own, for a future to complete with
+     */
+    public static StacklessGasTooExpensiveException newInstance(GasType gasType) {
+        return new StacklessGasTooExpensiveException(gasType);
+    }
+
+    public GasType getGasType() {
+        return gasType;
+    }
+
+    @Override
+    public String getMessage() {
+        return gasType + " is too expensive";
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
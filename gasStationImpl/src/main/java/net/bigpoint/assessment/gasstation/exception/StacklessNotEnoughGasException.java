@@ -0,0 +1,63 @@
+package net.bigpoint.assessment.gasstation.exception;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+
+/**
+ * This exception is thrown whenever gas could not be bought because not enough was available. It tells which type of
+ * gas was missing.
+ * 
+ * Running out of gas is part of the normal traffic of a gas station, so this exception does not capture a stack trace
+ * and there is a single, shared instance per gas type. Do not attach suppressed exceptions or causes to it: the
+ * stages of a CompletableFuture may attach suppressed exceptions to the exception it completed with, so futures are
+ * completed with a new instance instead, which still does not capture a stack trace.
+ * 
+ */
+public final class StacklessNotEnoughGasException extends NotEnoughGasException {
+
+    /**
+     * 
+     */
+    private static final long serialVersionUID = -1864926651235573690L;
+
+    private static final StacklessNotEnoughGasException[] INSTANCES = new StacklessNotEnoughGasException[GasType
+            .values().length];
+
+    static {
+        for (GasType gasType : GasType.values()) {
+            INSTANCES[gasType.ordinal()] = new StacklessNotEnoughGasException(gasType);
+        }
+    }
+
+    private final GasType gasType;
+
+    private StacklessNotEnoughGasException(GasType gasType) {
+        this.gasType = gasType;
+    }
+
+    public static StacklessNotEnoughGasException forGasType(GasType gasType) {
+        return INSTANCES[gasType.ordinal()];
+    }
+
+    /**
+     * @return an instance of its own, for a future to complete with
+     */
+    public static StacklessNotEnoughGasException newInstance(GasType gasType) {
+        return new StacklessNotEnoughGasException(gasType);
+    }
+
+    public GasType getGasType() {
+        return gasType;
+    }
+
+    @Override
+    public String getMessage() {
+        return "Not enough " + gasType + " available";
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
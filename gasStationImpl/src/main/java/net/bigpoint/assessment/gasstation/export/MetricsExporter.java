@@ -0,0 +1,214 @@
+package net.bigpoint.assessment.gasstation.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
+import net.bigpoint.assessment.gasstation.impl.AdmissionQueue;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.HistogramSnapshot;
+import net.bigpoint.assessment.gasstation.impl.LatencyHistogram;
+import net.bigpoint.assessment.gasstation.impl.StationMetrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ *
+ * This class publishes the figures of a gas station over HTTP in the OpenMetrics text format, for a Prometheus server
+ * to scrape.
+ *
+ * Every scrape takes one StationSnapshot and one snapshot of each latency histogram, so the station is never locked
+ * and all the sales figures of a scrape belong to the same point in time. Latencies are exported as histograms whose
+ * buckets end one nanosecond below a power of two: the bound of an OpenMetrics bucket is inclusive, and a power of two
+ * is the first value of a bucket of LatencyHistogram, so only these bounds match its buckets exactly.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class MetricsExporter implements Closeable {
+
+    public static final String PATH = "/metrics";
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    // latency buckets from about a microsecond to about a minute
+    private static final int SMALLEST_BUCKET_EXPONENT = 10;
+    private static final int LARGEST_BUCKET_EXPONENT = 36;
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    private final GasStationImpl gasStation;
+    private final HttpServer server;
+
+    /**
+     * Starts serving the figures of the given gas station on PATH.
+     *
+     * @param address
+     *            where to listen, with port 0 for any free port
+     */
+    public MetricsExporter(GasStationImpl gasStation, InetSocketAddress address) throws IOException {
+
+        this.gasStation = gasStation;
+
+        server = HttpServer.create(address, 0);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the address the exporter listens on, with the port actually taken
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops serving, without waiting for scrapes in progress.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+
+            OutputStream responseBody = exchange.getResponseBody();
+            responseBody.write(body);
+            responseBody.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the current figures of the gas station in the OpenMetrics text format
+     */
+    public String scrape() {
+
+        StationSnapshot snapshot = gasStation.getSnapshot();
+        StationMetrics metrics = gasStation.getMetrics();
+        GasType[] gasTypes = GasType.values();
+
+        StringBuilder text = new StringBuilder(8192);
+
+        family(text, "gas_station_sales", "counter", "Successful sales.");
+        for (GasType gasType : gasTypes) {
+            sample(text, "gas_station_sales_total", gasType, snapshot.getNumberOfSales(gasType));
+        }
+
+        family(text, "gas_station_sold_liters", "counter", "Liters of gas sold.");
+        for (GasType gasType : gasTypes) {
+            sample(text, "gas_station_sold_liters_total", gasType, snapshot.getAmountSold(gasType));
+        }
+
+        family(text, "gas_station_revenue_euros", "counter", "Money earned.");
+        for (GasType gasType : gasTypes) {
+            sample(text, "gas_station_revenue_euros_total", gasType, snapshot.getRevenue(gasType));
+        }
+
+        family(text, "gas_station_cancellations", "counter", "Sales cancelled, by reason.");
+        for (GasType gasType : gasTypes) {
+            text.append("gas_station_cancellations_total{gas_type=\"").append(gasType)
+                    .append("\",reason=\"no_gas\"} ").append(snapshot.getNumberOfCancellationsNoGas(gasType))
+                    .append('\n');
+            text.append("gas_station_cancellations_total{gas_type=\"").append(gasType)
+                    .append("\",reason=\"too_expensive\"} ")
+                    .append(snapshot.getNumberOfCancellationsTooExpensive(gasType)).append('\n');
+        }
+
+        // customers turned away by the waiting line never reached a pump, so they are not cancellations
+        if (gasStation.getAdmissionQueue(gasTypes[0]) != null) {
+            family(text, "gas_station_admission_rejections", "counter",
+                    "Customers turned away from the waiting line, by reason.");
+            for (GasType gasType : gasTypes) {
+                AdmissionQueue admissionQueue = gasStation.getAdmissionQueue(gasType);
+                text.append("gas_station_admission_rejections_total{gas_type=\"").append(gasType)
+                        .append("\",reason=\"queue_full\"} ").append(admissionQueue.getNumberOfRejectionsQueueFull())
+                        .append('\n');
+                text.append("gas_station_admission_rejections_total{gas_type=\"").append(gasType)
+                        .append("\",reason=\"timed_out\"} ").append(admissionQueue.getNumberOfRejectionsTimedOut())
+                        .append('\n');
+            }
+        }
+
+        family(text, "gas_station_price_euros", "gauge", "Price per liter.");
+        for (GasType gasType : gasTypes) {
+            sample(text, "gas_station_price_euros", gasType, snapshot.getPrice(gasType));
+        }
+
+        family(text, "gas_station_pump_remaining_liters", "gauge", "Gas left in each pump.");
+        for (int pump = 0; pump < snapshot.getNumberOfPumps(); pump++) {
+            text.append("gas_station_pump_remaining_liters{pump=\"").append(pump).append("\",gas_type=\"")
+                    .append(snapshot.getPumpGasType(pump)).append("\"} ")
+                    .append(snapshot.getPumpRemainingAmount(pump)).append('\n');
+        }
+
+        family(text, "gas_station_buy_gas_wait_seconds", "histogram",
+                "Time from the arrival of a customer until a pump started on its gas, for every way of buying gas.");
+        for (GasType gasType : gasTypes) {
+            histogram(text, "gas_station_buy_gas_wait_seconds", gasType, metrics.getWaitTimes(gasType));
+        }
+
+        family(text, "gas_station_buy_gas_pump_seconds", "histogram",
+                "Time from the start of the pump until all the gas of a customer was pumped, "
+                        + "for every way of buying gas.");
+        for (GasType gasType : gasTypes) {
+            histogram(text, "gas_station_buy_gas_pump_seconds", gasType, metrics.getPumpTimes(gasType));
+        }
+
+        text.append("# EOF\n");
+
+        return text.toString();
+    }
+
+    private static void family(StringBuilder text, String name, String type, String help) {
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, GasType gasType, long value) {
+        text.append(name).append("{gas_type=\"").append(gasType).append("\"} ").append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder text, String name, GasType gasType, double value) {
+        text.append(name).append("{gas_type=\"").append(gasType).append("\"} ").append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder text, String name, GasType gasType, LatencyHistogram histogram) {
+
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+
+        for (int exponent = SMALLEST_BUCKET_EXPONENT; exponent <= LARGEST_BUCKET_EXPONENT; exponent++) {
+            // the values up to the bound, included, are the ones below the next power of two
+            long bound = (1L << exponent) - 1;
+            text.append(name).append("_bucket{gas_type=\"").append(gasType).append("\",le=\"")
+                    .append(bound / NANOS_PER_SECOND).append("\"} ").append(snapshot.getCountBelow(bound + 1))
+                    .append('\n');
+        }
+
+        text.append(name).append("_bucket{gas_type=\"").append(gasType).append("\",le=\"+Inf\"} ")
+                .append(snapshot.getCount()).append('\n');
+        text.append(name).append("_count{gas_type=\"").append(gasType).append("\"} ").append(snapshot.getCount())
+                .append('\n');
+        text.append(name).append("_sum{gas_type=\"").append(gasType).append("\"} ")
+                .append(snapshot.getTotal(TimeUnit.NANOSECONDS) / NANOS_PER_SECOND).append('\n');
+    }
+
+}
@@ -0,0 +1,88 @@
+package net.bigpoint.assessment.gasstation.extension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasStation;
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ * 
+ * This interface extends GasStation with the operations our own implementations offer on top of it
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public interface ExtendedGasStation extends GasStation {
+
+    /**
+     * Takes a pump out of service. Customers that already got gas reserved on it are still served, but no new customer
+     * is sent to it.
+     * 
+     * @param pump
+     *            The pump to remove, as it was added to this gas station
+     * @return true if the pump belonged to this gas station
+     */
+    boolean removeGasPump(GasPump pump);
+
+    /**
+     * Tops up a pump with a delivery of gas, without stopping the sales. As a GasPump can only be emptied, the pump is
+     * replaced by a new one holding the gas left plus the delivery.
+     *
+     * @param pump
+     *            The pump to top up, as it is in this gas station now
+     * @param amountInLiters
+     *            The amount of gas delivered
+     * @return the pump that replaces the given one from now on, or null if the pump does not belong to this gas station
+     */
+    GasPump refillGasPump(GasPump pump, double amountInLiters);
+
+    /**
+     * Takes a consistent picture of the figures of this gas station. The per gas type figures, the totals and the
+     * cancellation counters of the snapshot all belong to the same point in time.
+     * 
+     * @return an immutable snapshot of this gas station
+     */
+    StationSnapshot getSnapshot();
+
+    /**
+     * Same as buyGas(GasType, double, double), but without blocking the caller while the gas is pumped.
+     * 
+     * @param type
+     *            The type of gas the customer wants to buy
+     * @param amountInLiters
+     *            The amount of gas the customer wants to buy. Nothing less than this amount is acceptable!
+     * @param maxPricePerLiter
+     *            The maximum price the customer is willing to pay per liter
+     * @return a future completed with the price the customer has to pay once the gas has been pumped, or completed
+     *         exceptionally with a NotEnoughGasException or a GasTooExpensiveException
+     */
+    CompletableFuture<Double> buyGasAsync(GasType type, double amountInLiters, double maxPricePerLiter);
+
+    /**
+     * Same as buyGas(GasType, double, double), but reporting cancelled purchases through the result instead of
+     * throwing an exception.
+     * 
+     * @param type
+     *            The type of gas the customer wants to buy
+     * @param amountInLiters
+     *            The amount of gas the customer wants to buy. Nothing less than this amount is acceptable!
+     * @param maxPricePerLiter
+     *            The maximum price the customer is willing to pay per liter
+     * @return the outcome of the purchase, with the price the customer has to pay if the gas was sold
+     */
+    PurchaseResult tryBuyGas(GasType type, double amountInLiters, double maxPricePerLiter);
+
+    /**
+     * Buys gas for several orders at once, as a fleet card does. Every order is served or cancelled on its own, as if
+     * it was bought with tryBuyGas(GasType, double, double), but prices are read and pumps are reserved once for the
+     * whole batch, and all the orders are pumped at the same time.
+     * 
+     * @param orders
+     *            The orders to buy
+     * @return the outcome of every order, in the same order as the orders
+     */
+    List<PurchaseResult> buyGasBatch(List<FuelOrder> orders);
+
+}
@@ -0,0 +1,42 @@
+package net.bigpoint.assessment.gasstation.extension;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ * 
+ * This class is one fill of a batch purchase, with the same terms a single customer gives to buyGas(GasType, double,
+ * double). It is immutable.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class FuelOrder {
+
+    private final GasType gasType;
+    private final double amountInLiters;
+    private final double maxPricePerLiter;
+
+    public FuelOrder(GasType gasType, double amountInLiters, double maxPricePerLiter) {
+        this.gasType = gasType;
+        this.amountInLiters = amountInLiters;
+        this.maxPricePerLiter = maxPricePerLiter;
+    }
+
+    public GasType getGasType() {
+        return gasType;
+    }
+
+    public double getAmountInLiters() {
+        return amountInLiters;
+    }
+
+    public double getMaxPricePerLiter() {
+        return maxPricePerLiter;
+    }
+
+    @Override
+    public String toString() {
+        return amountInLiters + " liters of " + gasType + " at " + maxPricePerLiter + " at most";
+    }
+
+}
@@ -0,0 +1,51 @@
+package net.bigpoint.assessment.gasstation.extension;
+
+/**
+ * 
+ * This class is the outcome of a purchase that does not throw: either the gas was sold for a price, or the purchase was
+ * cancelled for the reason given by its status. Cancelled purchases are shared constants, so they cost nothing.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class PurchaseResult {
+
+    public static final PurchaseResult TOO_EXPENSIVE = new PurchaseResult(PurchaseStatus.TOO_EXPENSIVE, 0.0d);
+
+    public static final PurchaseResult NOT_ENOUGH_GAS = new PurchaseResult(PurchaseStatus.NOT_ENOUGH_GAS, 0.0d);
+
+    public static final PurchaseResult NO_PUMP_AVAILABLE = new PurchaseResult(PurchaseStatus.NO_PUMP_AVAILABLE, 0.0d);
+
+    private final PurchaseStatus status;
+    private final double price;
+
+    private PurchaseResult(PurchaseStatus status, double price) {
+        this.status = status;
+        this.price = price;
+    }
+
+    public static PurchaseResult sold(double price) {
+        return new PurchaseResult(PurchaseStatus.SOLD, price);
+    }
+
+    public PurchaseStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSold() {
+        return status == PurchaseStatus.SOLD;
+    }
+
+    /**
+     * @return the price the customer has to pay, zero if the purchase was cancelled
+     */
+    public double getPrice() {
+        return price;
+    }
+
+    @Override
+    public String toString() {
+        return isSold() ? status + " for " + price : status.toString();
+    }
+
+}
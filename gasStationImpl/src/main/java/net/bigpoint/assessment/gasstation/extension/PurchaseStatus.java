@@ -0,0 +1,23 @@
+package net.bigpoint.assessment.gasstation.extension;
+
+/**
+ * 
+ * This enumeration lists the possible outcomes of a purchase
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public enum PurchaseStatus {
+
+    SOLD,
+
+    TOO_EXPENSIVE,
+
+    NOT_ENOUGH_GAS,
+
+    /**
+     * The customer waited too long for a free pump, or the line of customers waiting was already full.
+     */
+    NO_PUMP_AVAILABLE;
+
+}
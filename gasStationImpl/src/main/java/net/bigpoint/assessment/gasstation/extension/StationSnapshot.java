@@ -0,0 +1,129 @@
+package net.bigpoint.assessment.gasstation.extension;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ * 
+ * This class is an immutable, point-in-time picture of the figures of a gas station.
+ * 
+ * Per gas type figures are kept in primitive arrays indexed by the ordinal of the gas type, and the totals are summed
+ * once when the snapshot is built, so reading a snapshot never touches the gas station again.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class StationSnapshot {
+
+    private final long version;
+
+    private final double[] litersOfGasSold;
+    private final double[] revenueEarned;
+    private final int[] numberOfSuccessfulSales;
+    private final int[] cancellationsNoGas;
+    private final int[] cancellationsTooExpensive;
+    private final double[] gasPrices;
+
+    private final GasType[] pumpGasTypes;
+    private final double[] pumpRemainingAmounts;
+
+    private final double totalRevenue;
+    private final int totalNumberOfSales;
+    private final int totalCancellationsNoGas;
+    private final int totalCancellationsTooExpensive;
+
+    /**
+     * Builds a snapshot taking ownership of the given arrays, which must not be modified afterwards. Per gas type
+     * arrays are indexed by gas type ordinal, pump arrays by pump position.
+     */
+    public StationSnapshot(long version, double[] litersOfGasSold, double[] revenueEarned,
+            int[] numberOfSuccessfulSales, int[] cancellationsNoGas, int[] cancellationsTooExpensive,
+            double[] gasPrices, GasType[] pumpGasTypes, double[] pumpRemainingAmounts) {
+
+        this.version = version;
+        this.litersOfGasSold = litersOfGasSold;
+        this.revenueEarned = revenueEarned;
+        this.numberOfSuccessfulSales = numberOfSuccessfulSales;
+        this.cancellationsNoGas = cancellationsNoGas;
+        this.cancellationsTooExpensive = cancellationsTooExpensive;
+        this.gasPrices = gasPrices;
+        this.pumpGasTypes = pumpGasTypes;
+        this.pumpRemainingAmounts = pumpRemainingAmounts;
+
+        double revenue = 0.0d;
+        int sales = 0;
+        int noGas = 0;
+        int tooExpensive = 0;
+
+        for (int i = 0; i < revenueEarned.length; i++) {
+            revenue += revenueEarned[i];
+            sales += numberOfSuccessfulSales[i];
+            noGas += cancellationsNoGas[i];
+            tooExpensive += cancellationsTooExpensive[i];
+        }
+
+        this.totalRevenue = revenue;
+        this.totalNumberOfSales = sales;
+        this.totalCancellationsNoGas = noGas;
+        this.totalCancellationsTooExpensive = tooExpensive;
+    }
+
+    /**
+     * @return a number that grows every time the sales figures of the gas station change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public double getAmountSold(GasType type) {
+        return litersOfGasSold[type.ordinal()];
+    }
+
+    public double getRevenue() {
+        return totalRevenue;
+    }
+
+    public double getRevenue(GasType type) {
+        return revenueEarned[type.ordinal()];
+    }
+
+    public int getNumberOfSales() {
+        return totalNumberOfSales;
+    }
+
+    public int getNumberOfSales(GasType type) {
+        return numberOfSuccessfulSales[type.ordinal()];
+    }
+
+    public int getNumberOfCancellationsNoGas() {
+        return totalCancellationsNoGas;
+    }
+
+    public int getNumberOfCancellationsNoGas(GasType type) {
+        return cancellationsNoGas[type.ordinal()];
+    }
+
+    public int getNumberOfCancellationsTooExpensive() {
+        return totalCancellationsTooExpensive;
+    }
+
+    public int getNumberOfCancellationsTooExpensive(GasType type) {
+        return cancellationsTooExpensive[type.ordinal()];
+    }
+
+    public double getPrice(GasType type) {
+        return gasPrices[type.ordinal()];
+    }
+
+    public int getNumberOfPumps() {
+        return pumpGasTypes.length;
+    }
+
+    public GasType getPumpGasType(int pump) {
+        return pumpGasTypes[pump];
+    }
+
+    public double getPumpRemainingAmount(int pump) {
+        return pumpRemainingAmounts[pump];
+    }
+
+}
@@ -0,0 +1,39 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 
+ * This class tells how many customers of a gas type may wait for a free pump, and for how long, before they are turned
+ * away. It is immutable.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class AdmissionPolicy {
+
+    private final int capacity;
+    private final long timeoutNanos;
+
+    public AdmissionPolicy(int capacity, long timeout, TimeUnit unit) {
+
+        if (capacity < 0 || timeout < 0) {
+            throw new IllegalArgumentException("Capacity and timeout cannot be negative");
+        }
+
+        this.capacity = capacity;
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * @return the number of customers of each gas type that can wait at the same time
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getTimeout(TimeUnit unit) {
+        return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+}
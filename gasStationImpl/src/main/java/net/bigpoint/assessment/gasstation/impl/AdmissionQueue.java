@@ -0,0 +1,156 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 
+ * This class is the waiting line of the customers of one gas type.
+ * 
+ * A customer is admitted when a pump of its gas type is free, in the order customers arrived: there is one permit per
+ * pump in a fair semaphore, so nobody can barge ahead of those already waiting. A customer that finds the line full,
+ * or that waits longer than the timeout of the AdmissionPolicy, is turned away.
+ * 
+ * Besides the current length of the line, the queue keeps how long customers waited and how many were turned away, so
+ * that tail latencies at peak hours can be measured.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class AdmissionQueue {
+
+    private final PumpPermits freePumps = new PumpPermits();
+    private final int capacity;
+    private final long timeoutNanos;
+
+    private final AtomicInteger waitingCustomers = new AtomicInteger();
+    private final AtomicInteger maxWaitingCustomers = new AtomicInteger();
+
+    private final LongAdder admittedCustomers = new LongAdder();
+    private final LongAdder nanosWaited = new LongAdder();
+    private final LongAdder rejectionsQueueFull = new LongAdder();
+    private final LongAdder rejectionsTimedOut = new LongAdder();
+
+    AdmissionQueue(AdmissionPolicy policy) {
+        this.capacity = policy.getCapacity();
+        this.timeoutNanos = policy.getTimeout(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits until a pump is free for the calling customer. An interrupted customer gives up as if the timeout expired,
+     * keeping its interrupted status.
+     * 
+     * @return true if the customer got a pump and must call leave() once served, false if it was turned away
+     */
+    boolean admit() {
+
+        // a zero timeout still respects the customers already waiting, unlike tryAcquire()
+        if (tryAcquire(0L)) {
+            admittedCustomers.increment();
+            return true;
+        }
+
+        int waiting = waitingCustomers.incrementAndGet();
+        if (waiting > capacity) {
+            waitingCustomers.decrementAndGet();
+            rejectionsQueueFull.increment();
+            return false;
+        }
+        maxWaitingCustomers.accumulateAndGet(waiting, Math::max);
+
+        long start = System.nanoTime();
+        boolean admitted;
+        try {
+            admitted = tryAcquire(timeoutNanos);
+        } finally {
+            waitingCustomers.decrementAndGet();
+            nanosWaited.add(System.nanoTime() - start);
+        }
+
+        if (admitted) {
+            admittedCustomers.increment();
+        } else {
+            rejectionsTimedOut.increment();
+        }
+        return admitted;
+    }
+
+    private boolean tryAcquire(long nanos) {
+        try {
+            return freePumps.tryAcquire(nanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Frees the pump of a customer admitted before.
+     */
+    void leave() {
+        freePumps.release();
+    }
+
+    void addPump() {
+        freePumps.release();
+    }
+
+    void removePump() {
+        freePumps.reducePermits(1);
+    }
+
+    /**
+     * @return the number of customers waiting for a pump right now
+     */
+    public int getQueueLength() {
+        return waitingCustomers.get();
+    }
+
+    public int getMaxQueueLength() {
+        return maxWaitingCustomers.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getNumberOfAdmissions() {
+        return admittedCustomers.sum();
+    }
+
+    /**
+     * @return the total time customers spent waiting in line, in the given unit
+     */
+    public long getTimeWaited(TimeUnit unit) {
+        return unit.convert(nanosWaited.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getNumberOfRejectionsQueueFull() {
+        return rejectionsQueueFull.sum();
+    }
+
+    public long getNumberOfRejectionsTimedOut() {
+        return rejectionsTimedOut.sum();
+    }
+
+    /**
+     * A fair semaphore whose permits can also be taken away, as pumps are removed.
+     */
+    private static final class PumpPermits extends Semaphore {
+
+        private static final long serialVersionUID = 6817361294726016183L;
+
+        PumpPermits() {
+            super(0, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+/**
+ * 
+ * This class converts between the double based amounts of the GasStation interface and the fixed-point longs used
+ * internally: volumes are kept in milliliters and money in micro-euros, so sums are exact no matter how many sales are
+ * accumulated.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class FixedPoint {
+
+    public static final long MILLILITERS_PER_LITER = 1000L;
+    public static final long MICRO_EUROS_PER_EURO = 1000000L;
+
+    private FixedPoint() {
+    }
+
+    public static long toMilliliters(double liters) {
+        return Math.round(liters * MILLILITERS_PER_LITER);
+    }
+
+    public static double toLiters(long milliliters) {
+        return (double) milliliters / MILLILITERS_PER_LITER;
+    }
+
+    public static long toMicroEuros(double euros) {
+        return Math.round(euros * MICRO_EUROS_PER_EURO);
+    }
+
+    public static double toEuros(long microEuros) {
+        return (double) microEuros / MICRO_EUROS_PER_EURO;
+    }
+
+    /**
+     * Computes what a volume costs at a price per liter, rounded half up to the micro-euro.
+     * 
+     * @throws ArithmeticException
+     *             if the result does not fit in a long
+     */
+    public static long cost(long milliliters, long microEurosPerLiter) {
+        return (Math.multiplyExact(milliliters, microEurosPerLiter) + MILLILITERS_PER_LITER / 2)
+                / MILLILITERS_PER_LITER;
+    }
+
+}
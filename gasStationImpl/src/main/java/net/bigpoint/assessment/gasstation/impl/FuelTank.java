@@ -0,0 +1,112 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ *
+ * This class is an underground tank that feeds all the pumps of one gas type of a gas station, so that no gas is left
+ * stranded in one pump while another one runs dry.
+ *
+ * The gas left in the tank is a single count of milliliters (see FixedPoint). A sale reserves its gas with a
+ * compare-and-set on it, which can never take the count below zero, so pumps of the same gas type sell at the same time
+ * without a lock and without selling more than there is.
+ *
+ * Reserved gas stays in the tank until it has been pumped, so the tank also keeps its level: the gas really in it,
+ * reserved or not. Tankers deliver with a compare-and-set on the level, up to the capacity of the tank, and only then
+ * make the delivery available for sale, so the gas nobody reserved is never more than the level.
+ *
+ * The pumps a tank feeds only meter the gas drawn from it: their own gas is left as it is.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class FuelTank {
+
+    private final GasType gasType;
+    private final long capacityInMilliliters;
+    private final AtomicLong unreservedMilliliters;
+    private final AtomicLong levelInMilliliters;
+
+    public FuelTank(GasType gasType, double capacityInLiters, double amountInLiters) {
+
+        this.gasType = gasType;
+        this.capacityInMilliliters = FixedPoint.toMilliliters(capacityInLiters);
+
+        long milliliters = FixedPoint.toMilliliters(amountInLiters);
+        if (milliliters < 0 || milliliters > capacityInMilliliters) {
+            throw new IllegalArgumentException("A tank of " + capacityInLiters + " liters cannot hold " + amountInLiters
+                    + " liters");
+        }
+        this.unreservedMilliliters = new AtomicLong(milliliters);
+        this.levelInMilliliters = new AtomicLong(milliliters);
+    }
+
+    /**
+     * @return true if the tank had enough gas left and it has been reserved
+     */
+    boolean reserve(long milliliters) {
+
+        long unreserved;
+        while ((unreserved = unreservedMilliliters.get()) >= milliliters) {
+            if (unreservedMilliliters.compareAndSet(unreserved, unreserved - milliliters)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Pours gas into the tank, as much of it as fits. Deliveries go through GasStationImpl.deliverToFuelTank(GasType,
+     * double), so that they are journaled.
+     *
+     * @return the amount of gas that fit into the tank
+     */
+    long deliver(long milliliters) {
+
+        while (true) {
+            long level = levelInMilliliters.get();
+            long delivered = Math.min(milliliters, capacityInMilliliters - level);
+            if (levelInMilliliters.compareAndSet(level, level + delivered)) {
+                unreservedMilliliters.addAndGet(delivered);
+                return delivered;
+            }
+        }
+    }
+
+    /**
+     * Takes gas reserved before out of the tank, once it has been pumped.
+     */
+    void draw(long milliliters) {
+        levelInMilliliters.addAndGet(-milliliters);
+    }
+
+    /**
+     * @return the gas left in the tank that no customer has reserved yet
+     */
+    public double getRemainingAmount() {
+        return FixedPoint.toLiters(unreservedMilliliters.get());
+    }
+
+    public double getCapacity() {
+        return FixedPoint.toLiters(capacityInMilliliters);
+    }
+
+    long getCapacityInMilliliters() {
+        return capacityInMilliliters;
+    }
+
+    /**
+     * @return the gas in the tank, including the gas reserved by customers that has not been pumped yet
+     */
+    long getLevelInMilliliters() {
+        return levelInMilliliters.get();
+    }
+
+    public GasType getGasType() {
+        return gasType;
+    }
+
+}
@@ -0,0 +1,53 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+
+/**
+ * 
+ * This interface is how GasStationImpl operates its pumps. It is called by one thread at a time per pump.
+ * 
+ * The gas station does not care how long pumping takes, so benchmarks and load tests can plug in a driver with a
+ * different pumping delay than the one simulated by GasPump itself.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public interface GasPumpDriver {
+
+    /**
+     * Pumps gas through GasPump.pumpGas(double), as in a real gas station.
+     */
+    GasPumpDriver DIRECT = new GasPumpDriver() {
+
+        public void pumpGas(GasPump gasPump, double amountInLiters) {
+            gasPump.pumpGas(amountInLiters);
+        }
+
+        public void meterGas(GasPump gasPump, double amountInLiters) {
+            // as long as GasPump.pumpGas(double) takes, which ignores interruptions as well
+            try {
+                Thread.sleep((long) (amountInLiters * 100));
+            } catch (InterruptedException e) {
+                // ignored
+            }
+        }
+    };
+
+    /**
+     * Pumps the given amount of gas out of the pump, which must end up showing that much less gas remaining.
+     */
+    void pumpGas(GasPump gasPump, double amountInLiters);
+
+    /**
+     * Pumps the given amount of gas through the pump from the tank feeding it. It takes as long as pumpGas(GasPump,
+     * double), but the pump must end up showing as much gas remaining as before.
+     * 
+     * By default the gas is pumped out of a new pump holding just that amount, so drivers that only implement
+     * pumpGas(GasPump, double) keep working. Drivers should rather meter the gas on the given pump, without creating a
+     * pump for every sale.
+     */
+    default void meterGas(GasPump gasPump, double amountInLiters) {
+        pumpGas(new GasPump(gasPump.getGasType(), amountInLiters), amountInLiters);
+    }
+
+}
@@ -1,50 +1,207 @@
 package net.bigpoint.assessment.gasstation.impl;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.bigpoint.assessment.gasstation.GasPump;
-import net.bigpoint.assessment.gasstation.GasStation;
 import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exception.StacklessGasTooExpensiveException;
+import net.bigpoint.assessment.gasstation.exception.StacklessNotEnoughGasException;
 import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
 import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+import net.bigpoint.assessment.gasstation.extension.ExtendedGasStation;
+import net.bigpoint.assessment.gasstation.extension.FuelOrder;
+import net.bigpoint.assessment.gasstation.extension.PurchaseResult;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
 
 /**
  * 
- * This class implements interface GasStation to model a gas station functionality
+ * This class implements interface ExtendedGasStation to model a gas station functionality
  * 
  * @author Juan P. Sánchez
  * 
  */
-public class GasStationImpl implements GasStation {
+public class GasStationImpl implements ExtendedGasStation {
 
-    private List<GasPump> gasPumps = new ArrayList<GasPump>();
-    private Map<GasType, Double> gasPrices = new HashMap<GasType, Double>();
+    // pumps queue their customers, so this pool never holds more busy threads than there are pumps pumping
+    private static final Executor PUMPING_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "gas-pump");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    private Map<GasType, Double> litersOfGasSold = new HashMap<GasType, Double>();
-    private Map<GasType, Double> revenueEarned = new HashMap<GasType, Double>();
-    private Map<GasType, Integer> numberOfSuccessfulSales = new HashMap<GasType, Integer>();
-    private Map<GasType, Integer> cancellationsNoGas = new HashMap<GasType, Integer>();
-    private Map<GasType, Integer> cancellationsTooExpensive = new HashMap<GasType, Integer>();
+    // copy on write: replaced as a whole under the station lock, so readers never lock nor copy
+    private volatile List<GasPump> gasPumps = Collections.emptyList();
+    private volatile ReservableGasPump[] reservableGasPumps = new ReservableGasPump[0];
+    private long nextPumpSequence;
+
+    private final Map<GasType, PumpGroup> pumpGroups = new EnumMap<GasType, PumpGroup>(GasType.class);
+    private final Map<GasType, AdmissionQueue> admissionQueues;
+    private final AtomicReference<PriceTable> priceTable = new AtomicReference<PriceTable>(PriceTable.EMPTY);
+
+    private final SalesLedger salesLedger = new SalesLedger();
+    private final StationMetrics metrics = new StationMetrics();
+    private volatile StationListener[] listeners = new StationListener[0];
+
+    // indexed by gas type ordinal, null for the gas types sold from the pumps themselves
+    private volatile FuelTank[] fuelTanks = new FuelTank[GasType.values().length];
+    private final PumpSelectionStrategy pumpSelectionStrategy;
+    private final GasPumpDriver gasPumpDriver;
+
+    private volatile boolean splitFillEnabled;
 
     public GasStationImpl() {
+        this(PumpSelectionStrategy.FIRST_FIT);
+    }
+
+    public GasStationImpl(PumpSelectionStrategy pumpSelectionStrategy) {
+        this(pumpSelectionStrategy, GasPumpDriver.DIRECT);
+    }
+
+    public GasStationImpl(PumpSelectionStrategy pumpSelectionStrategy, GasPumpDriver gasPumpDriver) {
+        this(pumpSelectionStrategy, gasPumpDriver, null);
+    }
+
+    /**
+     * @param admissionPolicy
+     *            how customers wait in line for a free pump of their gas type, or null to let them all queue at the
+     *            pumps right away. The policy applies to every way of buying gas: buyGasAsync(GasType, double, double)
+     *            blocks its caller while it waits in line, and every order of buyGasBatch(List) waits in line on its
+     *            own. With a policy, pumps are always chosen with PumpSelectionStrategy.LEAST_BUSY, whatever strategy
+     *            is given, so that an admitted customer goes to the pump that is free rather than queueing behind a
+     *            busy one
+     */
+    public GasStationImpl(PumpSelectionStrategy pumpSelectionStrategy, GasPumpDriver gasPumpDriver,
+            AdmissionPolicy admissionPolicy) {
+
+        this.pumpSelectionStrategy = admissionPolicy == null ? pumpSelectionStrategy
+                : PumpSelectionStrategy.LEAST_BUSY;
+        this.gasPumpDriver = gasPumpDriver;
 
         for (GasType gasType : GasType.values()) {
-            gasPrices.put(gasType, 0.0d);
-            litersOfGasSold.put(gasType, 0.0d);
-            revenueEarned.put(gasType, 0.0d);
-            numberOfSuccessfulSales.put(gasType, 0);
-            cancellationsNoGas.put(gasType, 0);
-            cancellationsTooExpensive.put(gasType, 0);
+            pumpGroups.put(gasType, new PumpGroup());
+        }
+
+        if (admissionPolicy == null) {
+            admissionQueues = null;
+        } else {
+            admissionQueues = new EnumMap<GasType, AdmissionQueue>(GasType.class);
+            for (GasType gasType : GasType.values()) {
+                admissionQueues.put(gasType, new AdmissionQueue(admissionPolicy));
+            }
+        }
+
+    }
+
+    public synchronized void addGasPump(GasPump pump) {
+
+        ReservableGasPump reservableGasPump = new ReservableGasPump(pump, nextPumpSequence++);
+
+        ReservableGasPump[] pumps = Arrays.copyOf(reservableGasPumps, reservableGasPumps.length + 1);
+        pumps[pumps.length - 1] = reservableGasPump;
+
+        PumpGroup pumpGroup = pumpGroups.get(pump.getGasType());
+        synchronized (pumpGroup) {
+            pumpGroup.add(reservableGasPump);
+        }
+        if (admissionQueues != null) {
+            admissionQueues.get(pump.getGasType()).addPump();
+        }
+        publish(pumps);
+
+        for (StationListener listener : listeners) {
+            listener.onPumpAdded(pump, reservableGasPump.getUnreservedMilliliters());
         }
+    }
+
+    public synchronized boolean removeGasPump(GasPump pump) {
+
+        for (int i = 0; i < reservableGasPumps.length; i++) {
+
+            ReservableGasPump reservableGasPump = reservableGasPumps[i];
+            if (reservableGasPump.getGasPump() == pump) {
+
+                ReservableGasPump[] pumps = new ReservableGasPump[reservableGasPumps.length - 1];
+                System.arraycopy(reservableGasPumps, 0, pumps, 0, i);
+                System.arraycopy(reservableGasPumps, i + 1, pumps, i, pumps.length - i);
+
+                // customers that already reserved gas on it are still served
+                PumpGroup pumpGroup = pumpGroups.get(pump.getGasType());
+                synchronized (pumpGroup) {
+                    pumpGroup.remove(reservableGasPump);
+                }
+                if (admissionQueues != null) {
+                    admissionQueues.get(pump.getGasType()).removePump();
+                }
+                publish(pumps);
 
+                for (StationListener listener : listeners) {
+                    listener.onPumpRemoved(pump);
+                }
+                return true;
+            }
+        }
+
+        return false;
     }
 
-    public void addGasPump(GasPump pump) {
-        gasPumps.add(pump);
+    /**
+     * The new pump takes the place of the old one and holds the gas nobody reserved on it plus the delivery. Customers
+     * that already got gas reserved on the old pump are still served by it. Sales only wait for the swap itself, under
+     * the reservation lock of the gas type.
+     */
+    public synchronized GasPump refillGasPump(GasPump pump, double amountInLiters) {
+
+        for (int i = 0; i < reservableGasPumps.length; i++) {
+
+            ReservableGasPump oldPump = reservableGasPumps[i];
+            if (oldPump.getGasPump() == pump) {
+
+                ReservableGasPump newPump;
+
+                PumpGroup pumpGroup = pumpGroups.get(pump.getGasType());
+                synchronized (pumpGroup) {
+                    long milliliters = oldPump.getUnreservedMilliliters() + FixedPoint.toMilliliters(amountInLiters);
+                    newPump = new ReservableGasPump(new GasPump(pump.getGasType(), FixedPoint.toLiters(milliliters)),
+                            nextPumpSequence++);
+                    pumpGroup.replace(oldPump, newPump);
+                    oldPump.setUnreservedMilliliters(0L);
+                }
+
+                ReservableGasPump[] pumps = reservableGasPumps.clone();
+                pumps[i] = newPump;
+                publish(pumps);
+
+                for (StationListener listener : listeners) {
+                    listener.onPumpRemoved(pump);
+                    listener.onPumpAdded(newPump.getGasPump(), newPump.getUnreservedMilliliters());
+                }
+                return newPump.getGasPump();
+            }
+        }
+
+        return null;
+    }
+
+    private void publish(ReservableGasPump[] pumps) {
+
+        GasPump[] gasPumps = new GasPump[pumps.length];
+        for (int i = 0; i < pumps.length; i++) {
+            gasPumps[i] = pumps[i].getGasPump();
+        }
+
+        this.gasPumps = Collections.unmodifiableList(Arrays.asList(gasPumps));
+        this.reservableGasPumps = pumps;
     }
 
     public Collection<GasPump> getGasPumps() {
@@ -54,123 +211,697 @@ public class GasStationImpl implements GasStation {
     public double buyGas(GasType type, double amountInLiters, double maxPricePerLiter) throws NotEnoughGasException,
             GasTooExpensiveException {
 
-        Double gasPrice = getGasPrice(type);
-        if (gasPrice > maxPricePerLiter) {
-            throwNewGasTooExpensiveException(type);
+        PurchaseResult result = tryBuyGas(type, amountInLiters, maxPricePerLiter);
+
+        switch (result.getStatus()) {
+        case TOO_EXPENSIVE:
+            throw StacklessGasTooExpensiveException.forGasType(type);
+        case NO_PUMP_AVAILABLE:
+            // the interface has no better way to tell that the customer leaves without gas, the admission queue
+            // already counted it as turned away
+        case NOT_ENOUGH_GAS:
+            throw StacklessNotEnoughGasException.forGasType(type);
+        default:
+            return result.getPrice();
         }
+    }
 
-        boolean isThereEnoughGas = getSuitableGasPump(type, amountInLiters);
-        if (!isThereEnoughGas) {
-            throwNewNotEnoughGasException(type);
+    public PurchaseResult tryBuyGas(GasType type, double amountInLiters, double maxPricePerLiter) {
+
+        long arrival = System.nanoTime();
+
+        // the whole sale uses this price, even if it changes meanwhile
+        long microEurosPerLiter = priceTable.get().getMicroEurosPerLiter(type);
+        if (microEurosPerLiter > FixedPoint.toMicroEuros(maxPricePerLiter)) {
+            recordCancellationTooExpensive(type);
+            return PurchaseResult.TOO_EXPENSIVE;
         }
 
-        return gasPrice * amountInLiters;
+        // a customer turned away is counted by the admission queue, not as a cancellation
+        AdmissionQueue admissionQueue = admissionQueues == null ? null : admissionQueues.get(type);
+        if (admissionQueue != null && !admissionQueue.admit()) {
+            return PurchaseResult.NO_PUMP_AVAILABLE;
+        }
+
+        try {
+            long milliliters = FixedPoint.toMilliliters(amountInLiters);
+            PumpReservation[] reservations = reserveSuitableGasPumps(type, amountInLiters, milliliters);
+            if (reservations == null) {
+                recordCancellationNoGas(type);
+                return PurchaseResult.NOT_ENOUGH_GAS;
+            }
+
+            return PurchaseResult.sold(await(pump(reservations, type, milliliters, microEurosPerLiter, arrival)));
+        } finally {
+            if (admissionQueue != null) {
+                admissionQueue.leave();
+            }
+        }
     }
 
-    private synchronized Double getGasPrice(GasType type) {
-        return gasPrices.get(type);
+    public CompletableFuture<Double> buyGasAsync(GasType type, double amountInLiters, double maxPricePerLiter) {
+
+        long arrival = System.nanoTime();
+
+        // the whole sale uses this price, even if it changes meanwhile
+        long microEurosPerLiter = priceTable.get().getMicroEurosPerLiter(type);
+        if (microEurosPerLiter > FixedPoint.toMicroEuros(maxPricePerLiter)) {
+            recordCancellationTooExpensive(type);
+            return failed(StacklessGasTooExpensiveException.newInstance(type));
+        }
+
+        // a customer turned away is counted by the admission queue, not as a cancellation
+        final AdmissionQueue admissionQueue = admissionQueues == null ? null : admissionQueues.get(type);
+        if (admissionQueue != null && !admissionQueue.admit()) {
+            return failed(StacklessNotEnoughGasException.newInstance(type));
+        }
+
+        long milliliters = FixedPoint.toMilliliters(amountInLiters);
+        PumpReservation[] reservations = reserveSuitableGasPumps(type, amountInLiters, milliliters);
+        if (reservations == null) {
+            if (admissionQueue != null) {
+                admissionQueue.leave();
+            }
+            recordCancellationNoGas(type);
+            return failed(StacklessNotEnoughGasException.newInstance(type));
+        }
+
+        CompletableFuture<Double> purchase = pump(reservations, type, milliliters, microEurosPerLiter, arrival);
+        if (admissionQueue == null) {
+            return purchase;
+        }
+
+        // the pump is only free for the next customer in line once the gas has been pumped
+        return purchase.whenComplete((price, e) -> admissionQueue.leave());
     }
 
-    private synchronized boolean getSuitableGasPump(GasType type, double amountInLiters) {
+    public List<PurchaseResult> buyGasBatch(List<FuelOrder> orders) {
+
+        long arrival = System.nanoTime();
+        GasType[] gasTypes = GasType.values();
+        FuelOrder[] fuelOrders = orders.toArray(new FuelOrder[orders.size()]);
+
+        PurchaseResult[] results = new PurchaseResult[fuelOrders.length];
+        long[] milliliters = new long[fuelOrders.length];
+        CompletableFuture<?>[] pumping = new CompletableFuture<?>[fuelOrders.length];
+
+        long[] millilitersSold = new long[gasTypes.length];
+        long[] microEurosEarned = new long[gasTypes.length];
+        int[] successfulSales = new int[gasTypes.length];
+        int[] cancellationsNoGas = new int[gasTypes.length];
+        int[] cancellationsTooExpensive = new int[gasTypes.length];
+
+        // the whole batch uses the same prices
+        PriceTable prices = priceTable.get();
+
+        for (int i = 0; i < fuelOrders.length; i++) {
+
+            FuelOrder order = fuelOrders[i];
+            GasType gasType = order.getGasType();
+
+            if (prices.getMicroEurosPerLiter(gasType) > FixedPoint.toMicroEuros(order.getMaxPricePerLiter())) {
+                results[i] = PurchaseResult.TOO_EXPENSIVE;
+                cancellationsTooExpensive[gasType.ordinal()]++;
+            } else {
+                milliliters[i] = FixedPoint.toMilliliters(order.getAmountInLiters());
+            }
+        }
 
-        boolean thereIsEnoughGasLeft = false;
+        for (GasType gasType : gasTypes) {
+
+            PumpGroup pumpGroup = pumpGroups.get(gasType);
+            FuelTank fuelTank = fuelTanks[gasType.ordinal()];
+            final AdmissionQueue admissionQueue = admissionQueues == null ? null : admissionQueues.get(gasType);
+
+            if (admissionQueue == null) {
+                // a single reservation lock for all the orders of a gas type
+                synchronized (pumpGroup) {
+                    for (int i = 0; i < fuelOrders.length; i++) {
+                        if (fuelOrders[i].getGasType() == gasType && results[i] == null) {
+                            pumping[i] = reserve(pumpGroup, fuelTank, fuelOrders[i], milliliters[i], arrival);
+                            if (pumping[i] == null) {
+                                results[i] = PurchaseResult.NOT_ENOUGH_GAS;
+                                cancellationsNoGas[gasType.ordinal()]++;
+                            }
+                        }
+                    }
+                }
+                continue;
+            }
 
-        for (GasPump gasPump : gasPumps) {
+            // every order waits in line like any other customer, and never while holding the reservation lock
+            for (int i = 0; i < fuelOrders.length; i++) {
+                if (fuelOrders[i].getGasType() != gasType || results[i] != null) {
+                    continue;
+                }
+
+                if (!admissionQueue.admit()) {
+                    results[i] = PurchaseResult.NO_PUMP_AVAILABLE;
+                    continue;
+                }
+
+                CompletableFuture<Void> dispensing;
+                synchronized (pumpGroup) {
+                    dispensing = reserve(pumpGroup, fuelTank, fuelOrders[i], milliliters[i], arrival);
+                }
+                if (dispensing == null) {
+                    admissionQueue.leave();
+                    results[i] = PurchaseResult.NOT_ENOUGH_GAS;
+                    cancellationsNoGas[gasType.ordinal()]++;
+                } else {
+                    pumping[i] = dispensing.whenComplete((done, e) -> admissionQueue.leave());
+                }
+            }
+        }
 
-            if (gasPump.getGasType().equals(type) && gasPump.getRemainingAmount() >= amountInLiters) {
+        RuntimeException failure = null;
+        long[] microEuros = new long[fuelOrders.length];
+
+        for (int i = 0; i < fuelOrders.length; i++) {
+            if (pumping[i] != null) {
+                try {
+                    await(pumping[i]);
+                } catch (RuntimeException e) {
+                    failure = failure == null ? e : failure;
+                    continue;
+                }
+
+                int index = fuelOrders[i].getGasType().ordinal();
+                microEuros[i] = FixedPoint.cost(milliliters[i], prices.getMicroEurosPerLiter(gasTypes[index]));
+
+                results[i] = PurchaseResult.sold(FixedPoint.toEuros(microEuros[i]));
+                millilitersSold[index] += milliliters[i];
+                microEurosEarned[index] += microEuros[i];
+                successfulSales[index]++;
+            }
+        }
 
-                gasPump.pumpGas(amountInLiters);
+        salesLedger.recordBatch(millilitersSold, microEurosEarned, successfulSales, cancellationsNoGas,
+                cancellationsTooExpensive);
 
-                this.litersOfGasSold.put(type, this.litersOfGasSold.get(type) + amountInLiters);
-                this.revenueEarned.put(type, this.revenueEarned.get(type) + amountInLiters * gasPrices.get(type));
-                this.numberOfSuccessfulSales.put(type, this.numberOfSuccessfulSales.get(type) + 1);
+        // listeners are told only once the ledger has it all, so whatever they read then includes the whole batch
+        for (int i = 0; i < fuelOrders.length; i++) {
+            if (results[i] == null) {
+                continue;
+            }
 
-                thereIsEnoughGasLeft = true;
+            GasType gasType = fuelOrders[i].getGasType();
+            switch (results[i].getStatus()) {
+            case SOLD:
+                fireSale(gasType, milliliters[i], microEuros[i]);
+                break;
+            case TOO_EXPENSIVE:
+                fireCancellationTooExpensive(gasType);
+                break;
+            case NO_PUMP_AVAILABLE:
+                break;
+            default:
+                fireCancellationNoGas(gasType);
                 break;
             }
+        }
 
+        if (failure != null) {
+            throw failure;
         }
-        return thereIsEnoughGasLeft;
+
+        return Arrays.asList(results);
     }
 
-    private synchronized void throwNewGasTooExpensiveException(GasType type) throws GasTooExpensiveException {
-        this.cancellationsTooExpensive.put(type, this.cancellationsTooExpensive.get(type) + 1);
-        throw new GasTooExpensiveException();
+    /**
+     * Reserves the gas of a batch order and queues its pumping. Callers must hold the monitor of the pump group.
+     * 
+     * @return a future completed once all the gas has been pumped, or null if there is not enough gas for the order
+     */
+    private CompletableFuture<Void> reserve(PumpGroup pumpGroup, FuelTank fuelTank, FuelOrder order, long milliliters,
+            long arrival) {
+
+        GasType gasType = order.getGasType();
+        PumpReservation[] reservations = fuelTank != null ? reserveFromTank(fuelTank, gasType,
+                order.getAmountInLiters(), milliliters) : reserveSuitableGasPumps(pumpGroup, order.getAmountInLiters(),
+                milliliters);
+
+        return reservations == null ? null : dispense(reservations, gasType, arrival);
+    }
+
+    /**
+     * Queues the pumping of gas already reserved.
+     * 
+     * @return a future completed with the price to pay once all the gas has been pumped
+     */
+    private CompletableFuture<Double> pump(PumpReservation[] reservations, final GasType type, final long milliliters,
+            final long microEurosPerLiter, long arrival) {
+
+        return dispense(reservations, type, arrival).thenApply(done -> {
+            long microEuros = FixedPoint.cost(milliliters, microEurosPerLiter);
+            recordSale(type, milliliters, microEuros);
+            return FixedPoint.toEuros(microEuros);
+        });
     }
 
-    private synchronized void throwNewNotEnoughGasException(GasType type) throws NotEnoughGasException {
-        int value = this.cancellationsNoGas.get(type);
-        this.cancellationsNoGas.put(type, value + 1);
-        throw new NotEnoughGasException();
+    /**
+     * Queues the pumping of gas already reserved. When the gas is split across several pumps, they all pump at the same
+     * time.
+     * 
+     * Once all the gas has been pumped, the customer is measured as waiting from its arrival until the first of its
+     * pumps started on it, which includes any wait behind earlier customers of the pump, and as pumping from then on.
+     */
+    private CompletableFuture<Void> dispense(PumpReservation[] reservations, final GasType type, final long arrival) {
+
+        final AtomicLong started = new AtomicLong(Long.MAX_VALUE);
+        CompletableFuture<Void> dispensing;
+
+        if (reservations.length == 1) {
+            dispensing = dispense(reservations[0], started);
+        } else {
+            CompletableFuture<?>[] pumps = new CompletableFuture<?>[reservations.length];
+            for (int i = 0; i < reservations.length; i++) {
+                pumps[i] = dispense(reservations[i], started);
+            }
+            dispensing = CompletableFuture.allOf(pumps);
+        }
+
+        return dispensing.thenRun(() -> {
+            long start = started.get();
+            metrics.getWaitTimes(type).record(start - arrival);
+            metrics.getPumpTimes(type).record(System.nanoTime() - start);
+        });
+    }
+
+    private CompletableFuture<Void> dispense(final PumpReservation reservation, final AtomicLong started) {
+
+        final CompletableFuture<Void> dispensing = new CompletableFuture<Void>();
+        final ReservableGasPump gasPump = reservation.getPump();
+
+        // the station is not locked while pumping, only the pump itself is
+        gasPump.runInTurn(() -> {
+            try {
+                started.accumulateAndGet(System.nanoTime(), Math::min);
+                if (reservation.getFuelTank() != null) {
+                    gasPump.dispenseFromTank(gasPumpDriver, reservation.getAmountInLiters());
+                    reservation.getFuelTank().draw(reservation.getMilliliters());
+                    for (StationListener listener : listeners) {
+                        listener.onFuelDrawn(gasPump.getGasPump(), reservation.getMilliliters());
+                    }
+                } else {
+                    gasPump.dispense(gasPumpDriver, reservation.getAmountInLiters());
+                    for (StationListener listener : listeners) {
+                        listener.onGasPumped(gasPump.getGasPump(), reservation.getMilliliters());
+                    }
+                }
+                dispensing.complete(null);
+            } catch (RuntimeException e) {
+                dispensing.completeExceptionally(e);
+            }
+        }, PUMPING_EXECUTOR);
+
+        return dispensing;
+    }
+
+    /**
+     * Waits for gas to be pumped. The gas is already reserved, so the customer stays until it has been pumped even if
+     * interrupted meanwhile.
+     */
+    private static <T> T await(CompletableFuture<T> pumping) {
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return pumping.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static CompletableFuture<Double> failed(Exception rejection) {
+        CompletableFuture<Double> purchase = new CompletableFuture<Double>();
+        purchase.completeExceptionally(rejection);
+        return purchase;
+    }
+
+    private PumpReservation[] reserveSuitableGasPumps(GasType type, double amountInLiters, long milliliters) {
+
+        // pumps fed by a tank need no reservation lock
+        FuelTank fuelTank = fuelTanks[type.ordinal()];
+        if (fuelTank != null) {
+            return reserveFromTank(fuelTank, type, amountInLiters, milliliters);
+        }
+
+        PumpGroup pumpGroup = pumpGroups.get(type);
+
+        // only customers of the same gas type wait for each other here
+        synchronized (pumpGroup) {
+            return reserveSuitableGasPumps(pumpGroup, amountInLiters, milliliters);
+        }
+    }
+
+    /**
+     * Callers must hold the monitor of the pump group.
+     */
+    private PumpReservation[] reserveSuitableGasPumps(PumpGroup pumpGroup, double amountInLiters, long milliliters) {
+
+        ReservableGasPump gasPump = pumpGroup.reserve(pumpSelectionStrategy, milliliters);
+        if (gasPump != null) {
+            return new PumpReservation[] { new PumpReservation(gasPump, milliliters, amountInLiters) };
+        }
+
+        return splitFillEnabled ? pumpGroup.reserveAcrossPumps(milliliters) : null;
+    }
+
+    /**
+     * Reserves gas in a tank and sends the customer to the pump of its gas type with the fewest customers, without
+     * taking any lock.
+     */
+    private PumpReservation[] reserveFromTank(FuelTank fuelTank, GasType type, double amountInLiters,
+            long milliliters) {
+
+        ReservableGasPump selected = null;
+        for (ReservableGasPump pump : reservableGasPumps) {
+            if (pump.getGasType() == type
+                    && (selected == null || pump.getNumberOfCustomers() < selected.getNumberOfCustomers())) {
+                selected = pump;
+            }
+        }
+
+        if (selected == null || !fuelTank.reserve(milliliters)) {
+            return null;
+        }
+
+        selected.addCustomer();
+        return new PumpReservation[] { new PumpReservation(selected, milliliters, amountInLiters, fuelTank) };
+    }
+
+    private void recordSale(GasType type, long milliliters, long microEuros) {
+        salesLedger.recordSale(type, milliliters, microEuros);
+        fireSale(type, milliliters, microEuros);
+    }
+
+    private void recordCancellationNoGas(GasType type) {
+        salesLedger.recordCancellationNoGas(type);
+        fireCancellationNoGas(type);
+    }
+
+    private void recordCancellationTooExpensive(GasType type) {
+        salesLedger.recordCancellationTooExpensive(type);
+        fireCancellationTooExpensive(type);
+    }
+
+    private void fireSale(GasType type, long milliliters, long microEuros) {
+        metrics.getSalesRates().recordSale(type, milliliters, microEuros);
+        for (StationListener listener : listeners) {
+            listener.onSale(type, milliliters, microEuros);
+        }
+    }
+
+    private void fireCancellationNoGas(GasType type) {
+        metrics.getSalesRates().recordCancellationNoGas(type);
+        for (StationListener listener : listeners) {
+            listener.onCancellationNoGas(type);
+        }
+    }
+
+    private void fireCancellationTooExpensive(GasType type) {
+        metrics.getSalesRates().recordCancellationTooExpensive(type);
+        for (StationListener listener : listeners) {
+            listener.onCancellationTooExpensive(type);
+        }
+    }
+
+    /**
+     * Registers a listener to be told about every change from now on.
+     */
+    public synchronized void addStationListener(StationListener listener) {
+        StationListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[updated.length - 1] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void removeStationListener(StationListener listener) {
+
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                StationListener[] updated = new StationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, updated.length - i);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the figures of this gas station, meant for restoring them after a restart
+     */
+    public SalesLedger getSalesLedger() {
+        return salesLedger;
+    }
+
+    /**
+     * @return the sales rates and the latencies of this gas station. Latencies are measured for every sale, whether
+     *         bought with buyGas, tryBuyGas, buyGasAsync or buyGasBatch
+     */
+    public StationMetrics getMetrics() {
+        return metrics;
     }
 
     public double getAmountSold(GasType type) {
-        return litersOfGasSold.get(type);
+        return salesLedger.getAmountSold(type);
     }
 
     public double getRevenue() {
-        return sumDoubleValuesForAllGasTypes(revenueEarned);
+        return salesLedger.getRevenue();
     }
 
     public double getRevenue(GasType type) {
-        return revenueEarned.get(type);
+        return salesLedger.getRevenue(type);
     }
 
     public int getNumberOfSales() {
-        return sumIntegerValuesForAllGasTypes(numberOfSuccessfulSales);
+        return salesLedger.getNumberOfSales();
     }
 
     public int getNumberOfSales(GasType type) {
-        return numberOfSuccessfulSales.get(type);
+        return salesLedger.getNumberOfSales(type);
     }
 
     public int getNumberOfCancellationsNoGas() {
-        return sumIntegerValuesForAllGasTypes(cancellationsNoGas);
+        return salesLedger.getNumberOfCancellationsNoGas();
     }
 
     public int getNumberOfCancellationsNoGas(GasType type) {
-        return cancellationsNoGas.get(type);
+        return salesLedger.getNumberOfCancellationsNoGas(type);
     }
 
     public int getNumberOfCancellationsTooExpensive() {
-        return sumIntegerValuesForAllGasTypes(cancellationsTooExpensive);
+        return salesLedger.getNumberOfCancellationsTooExpensive();
     }
 
     public int getNumberOfCancellationsTooExpensive(GasType type) {
-        return cancellationsTooExpensive.get(type);
+        return salesLedger.getNumberOfCancellationsTooExpensive(type);
     }
 
-    public double getPrice(GasType type) {
-        return gasPrices.get(type);
+    /**
+     * @return the line of customers waiting for a pump of the given gas type, or null if customers do not wait in line
+     */
+    public AdmissionQueue getAdmissionQueue(GasType type) {
+        return admissionQueues == null ? null : admissionQueues.get(type);
     }
 
-    public void setPrice(GasType type, double price) {
-        gasPrices.put(type, price);
+    /**
+     * Feeds all the pumps of the gas type of the tank from it from now on, instead of from their own gas. The gas left
+     * in those pumps is not sold any more and stays as it is: the pumps only meter the gas drawn from the tank. A tank
+     * replaces any other tank of the same gas type.
+     *
+     * The tank is what runs out, not a pump, so a sale of a tank-fed gas type always goes to the pump with the fewest
+     * customers: neither the PumpSelectionStrategy of the gas station nor split fill apply to it.
+     */
+    public synchronized void addFuelTank(FuelTank fuelTank) {
+
+        FuelTank[] tanks = fuelTanks.clone();
+        tanks[fuelTank.getGasType().ordinal()] = fuelTank;
+        fuelTanks = tanks;
+
+        for (StationListener listener : listeners) {
+            listener.onFuelTankAdded(fuelTank.getGasType(), fuelTank.getCapacityInMilliliters(),
+                    fuelTank.getLevelInMilliliters());
+        }
     }
 
-    private Double sumDoubleValuesForAllGasTypes(Map<GasType, Double> values) {
+    /**
+     * Pours gas into the tank feeding the pumps of the given gas type, as much of it as fits, without stopping the
+     * sales.
+     *
+     * @return the amount of gas that fit into the tank, in liters
+     * @throws IllegalArgumentException
+     *             if the pumps of the gas type are not fed by a tank
+     */
+    public double deliverToFuelTank(GasType type, double amountInLiters) {
+
+        FuelTank fuelTank = fuelTanks[type.ordinal()];
+        if (fuelTank == null) {
+            throw new IllegalArgumentException("The pumps of " + type + " are not fed by a tank");
+        }
+
+        long delivered = fuelTank.deliver(FixedPoint.toMilliliters(amountInLiters));
+        for (StationListener listener : listeners) {
+            listener.onFuelDelivered(type, delivered);
+        }
+
+        return FixedPoint.toLiters(delivered);
+    }
+
+    /**
+     * @return the tank feeding the pumps of the given gas type, or null if they are fed from their own gas
+     */
+    public FuelTank getFuelTank(GasType type) {
+        return fuelTanks[type.ordinal()];
+    }
+
+    public boolean isSplitFillEnabled() {
+        return splitFillEnabled;
+    }
+
+    /**
+     * @param splitFillEnabled
+     *            whether a customer can get gas from several pumps at the same time when no single pump has enough
+     */
+    public void setSplitFillEnabled(boolean splitFillEnabled) {
+        this.splitFillEnabled = splitFillEnabled;
+    }
+
+    /**
+     * @return the strategy pumps are chosen with, always LEAST_BUSY for a gas station with an admission policy
+     */
+    public PumpSelectionStrategy getPumpSelectionStrategy() {
+        return pumpSelectionStrategy;
+    }
 
-        Double total = 0.0d;
+    public StationSnapshot getSnapshot() {
 
-        for (GasType gasType : values.keySet()) {
+        GasType[] gasTypes = GasType.values();
 
-            total = total + values.get(gasType);
+        double[] litersOfGasSold = new double[gasTypes.length];
+        double[] revenueEarned = new double[gasTypes.length];
+        int[] numberOfSuccessfulSales = new int[gasTypes.length];
+        int[] cancellationsNoGas = new int[gasTypes.length];
+        int[] cancellationsTooExpensive = new int[gasTypes.length];
 
+        long version = salesLedger.copyTo(litersOfGasSold, revenueEarned, numberOfSuccessfulSales,
+                cancellationsNoGas, cancellationsTooExpensive);
+
+        PriceTable prices = priceTable.get();
+        double[] gasPrices = new double[gasTypes.length];
+        for (GasType gasType : gasTypes) {
+            gasPrices[gasType.ordinal()] = prices.getPrice(gasType);
+        }
+
+        ReservableGasPump[] pumps = reservableGasPumps;
+        FuelTank[] tanks = fuelTanks;
+        GasType[] pumpGasTypes = new GasType[pumps.length];
+        double[] pumpRemainingAmounts = new double[pumps.length];
+        for (int i = 0; i < pumps.length; i++) {
+            // pumps fed by a tank have what is left in it
+            FuelTank fuelTank = tanks[pumps[i].getGasType().ordinal()];
+            pumpGasTypes[i] = pumps[i].getGasType();
+            pumpRemainingAmounts[i] = fuelTank != null ? fuelTank.getRemainingAmount() : pumps[i].getRemainingAmount();
         }
 
-        return total;
+        return new StationSnapshot(version, litersOfGasSold, revenueEarned, numberOfSuccessfulSales,
+                cancellationsNoGas, cancellationsTooExpensive, gasPrices, pumpGasTypes, pumpRemainingAmounts);
+    }
+
+    /**
+     * Adds up the gas of a type left in the pumps, or in the tank feeding them, as the pumps showed it after their last
+     * use. Cheaper than a snapshot when nothing else is needed.
+     *
+     * @return the amount of gas left, in liters
+     */
+    public double getRemainingAmount(GasType type) {
+
+        FuelTank fuelTank = fuelTanks[type.ordinal()];
+        if (fuelTank != null) {
+            return fuelTank.getRemainingAmount();
+        }
+
+        double remainingAmount = 0.0d;
+        for (ReservableGasPump pump : reservableGasPumps) {
+            if (pump.getGasType() == type) {
+                remainingAmount += pump.getRemainingAmount();
+            }
+        }
+
+        return remainingAmount;
+    }
+
+    public double getPrice(GasType type) {
+        return priceTable.get().getPrice(type);
     }
 
-    private Integer sumIntegerValuesForAllGasTypes(Map<GasType, Integer> values) {
+    public void setPrice(GasType type, double price) {
 
-        Integer total = 0;
+        long microEurosPerLiter = FixedPoint.toMicroEuros(price);
+        PriceTable current;
+        PriceTable updated;
 
-        for (GasType gasType : values.keySet()) {
+        do {
+            current = priceTable.get();
+            updated = current.withPrice(type, microEurosPerLiter);
+        } while (!priceTable.compareAndSet(current, updated));
 
-            total = total + values.get(gasType);
+        for (StationListener listener : listeners) {
+            listener.onPriceChanged(type, microEurosPerLiter, updated.getVersion());
+        }
+    }
 
+    /**
+     * Changes the prices of every gas type at once, as a single new version, unless they changed since the given table
+     * was read.
+     *
+     * @param expected
+     *            The table the new prices were worked out from
+     * @param microEurosPerLiter
+     *            The new prices, indexed by gas type ordinal
+     * @return false if the prices had changed meanwhile, and none has been changed now
+     */
+    public boolean updatePrices(PriceTable expected, long[] microEurosPerLiter) {
+
+        PriceTable updated = expected.withPrices(microEurosPerLiter);
+        if (!priceTable.compareAndSet(expected, updated)) {
+            return false;
         }
 
-        return total;
+        for (GasType gasType : GasType.values()) {
+            long price = updated.getMicroEurosPerLiter(gasType);
+            if (price != expected.getMicroEurosPerLiter(gasType)) {
+                for (StationListener listener : listeners) {
+                    listener.onPriceChanged(gasType, price, updated.getVersion());
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the prices currently in force, all belonging to the same version
+     */
+    public PriceTable getPriceTable() {
+        return priceTable.get();
     }
 }
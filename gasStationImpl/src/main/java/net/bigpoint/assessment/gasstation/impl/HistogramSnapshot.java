@@ -0,0 +1,112 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * This class is an immutable copy of the counters of a LatencyHistogram.
+ *
+ * Percentiles are given as the highest value of the bucket they fall into, so they are never lower than the real
+ * value and at most 1/16 above it.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long totalNanos;
+    private final long count;
+
+    HistogramSnapshot(long[] counts, long totalNanos) {
+
+        this.counts = counts;
+        this.totalNanos = totalNanos;
+
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotal(TimeUnit unit) {
+        return unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0.0d : (double) totalNanos / count;
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return the value below which the given percentage of the recorded values fall, in nanoseconds, or 0 if nothing
+     *         was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+
+        if (count == 0) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(count * Math.min(percentile, 100.0d) / 100.0d));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return LatencyHistogram.highestValueOf(i);
+            }
+        }
+
+        return getMaxNanos();
+    }
+
+    public long getMaxNanos() {
+
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return LatencyHistogram.highestValueOf(i);
+            }
+        }
+
+        return 0L;
+    }
+
+    /**
+     * @return the number of values recorded below the given one, exact when it is a power of two
+     */
+    public long getCountBelow(long nanos) {
+
+        long below = 0;
+        for (int i = 0; i < counts.length && LatencyHistogram.highestValueOf(i) < nanos; i++) {
+            below += counts[i];
+        }
+
+        return below;
+    }
+
+    public int getNumberOfBuckets() {
+        return counts.length;
+    }
+
+    public long getBucketCount(int bucket) {
+        return counts[bucket];
+    }
+
+    /**
+     * @return the largest value, in nanoseconds, counted in the given bucket
+     */
+    public long getBucketUpperBound(int bucket) {
+        return LatencyHistogram.highestValueOf(bucket);
+    }
+
+}
@@ -0,0 +1,94 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * This class records how long something took, in nanoseconds, as a histogram of logarithmic buckets.
+ *
+ * Every power of two is split into 16 linear buckets, so a recorded value is known to within 1/16 of itself whatever
+ * its magnitude, from a nanosecond to centuries, in a fixed array of counters. Recording is an increment of one
+ * counter and one striped adder: it neither locks nor allocates.
+ *
+ * Exporters read a HistogramSnapshot, and can reset the histogram while doing so to get interval figures. Values
+ * recorded during a reset end up either in that snapshot or in the next one, never in both. The buckets and the total
+ * time are reset one after the other, though, so such a value may be counted in one snapshot and have its time added
+ * to the other: the mean of a snapshot taken with a reset is off by the values recorded during the reset.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int NUMBER_OF_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+    }
+
+    public HistogramSnapshot getSnapshot() {
+
+        long[] snapshot = new long[NUMBER_OF_BUCKETS];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+
+        return new HistogramSnapshot(snapshot, totalNanos.sum());
+    }
+
+    /**
+     * @return the values recorded since the last reset, starting over from zero. The total time may include values
+     *         recorded during the reset that are only counted in the next snapshot, or leave out values counted in
+     *         this one
+     */
+    public HistogramSnapshot getSnapshotAndReset() {
+
+        long[] snapshot = new long[NUMBER_OF_BUCKETS];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.getAndSet(i, 0L);
+        }
+
+        return new HistogramSnapshot(snapshot, totalNanos.sumThenReset());
+    }
+
+    static int bucketOf(long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the smallest value that falls into the given bucket
+     */
+    static long lowestValueOf(int bucket) {
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @return the largest value that falls into the given bucket
+     */
+    static long highestValueOf(int bucket) {
+        return bucket == NUMBER_OF_BUCKETS - 1 ? Long.MAX_VALUE : lowestValueOf(bucket + 1) - 1;
+    }
+
+}
@@ -0,0 +1,59 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ * 
+ * This class is an immutable table of gas prices, indexed by gas type ordinal and kept in micro-euros per liter.
+ * 
+ * Every change produces a new table with the next version number, so a gas station can swap tables atomically and a
+ * sale that reads one table uses exactly one version of the prices from start to end.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class PriceTable {
+
+    /**
+     * Every gas type for free, as a new gas station starts.
+     */
+    public static final PriceTable EMPTY = new PriceTable(0L, new long[GasType.values().length]);
+
+    private final long version;
+    private final long[] microEurosPerLiter;
+
+    private PriceTable(long version, long[] microEurosPerLiter) {
+        this.version = version;
+        this.microEurosPerLiter = microEurosPerLiter;
+    }
+
+    /**
+     * @return a copy of this table with the price of the given gas type changed and the version increased
+     */
+    public PriceTable withPrice(GasType type, long microEurosPerLiter) {
+        long[] prices = this.microEurosPerLiter.clone();
+        prices[type.ordinal()] = microEurosPerLiter;
+        return new PriceTable(version + 1, prices);
+    }
+
+    /**
+     * @return a copy of this table with the prices of every gas type changed, indexed by gas type ordinal, and the
+     *         version increased
+     */
+    public PriceTable withPrices(long[] microEurosPerLiter) {
+        return new PriceTable(version + 1, microEurosPerLiter.clone());
+    }
+
+    public long getMicroEurosPerLiter(GasType type) {
+        return microEurosPerLiter[type.ordinal()];
+    }
+
+    public double getPrice(GasType type) {
+        return FixedPoint.toEuros(microEurosPerLiter[type.ordinal()]);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+}
@@ -0,0 +1,139 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * 
+ * This class indexes the pumps of a gas station serving one gas type, so a sale never looks at pumps of other types.
+ * 
+ * Pumps are kept both in the order they were added and sorted by the gas they have left to reserve, which lets a
+ * PumpSelectionStrategy find the best fitting pump in logarithmic time.
+ * 
+ * Every group is the reservation lock of its own pumps: callers must hold its monitor, so that sales of different gas
+ * types never wait for each other.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+final class PumpGroup {
+
+    private final List<ReservableGasPump> pumps = new ArrayList<ReservableGasPump>();
+    private final TreeSet<ReservableGasPump> pumpsByUnreservedAmount = new TreeSet<ReservableGasPump>(
+            ReservableGasPump.BY_UNRESERVED_AMOUNT);
+    private final ReservableGasPump searchKey = ReservableGasPump.newSearchKey();
+
+    private int nextPump;
+
+    void add(ReservableGasPump pump) {
+        pumps.add(pump);
+        pumpsByUnreservedAmount.add(pump);
+    }
+
+    void remove(ReservableGasPump pump) {
+
+        pumps.remove(pump);
+        pumpsByUnreservedAmount.remove(pump);
+
+        if (nextPump >= pumps.size()) {
+            nextPump = 0;
+        }
+    }
+
+    /**
+     * Puts a pump in the place of another one, keeping the order of the pumps.
+     */
+    void replace(ReservableGasPump oldPump, ReservableGasPump newPump) {
+
+        pumps.set(pumps.indexOf(oldPump), newPump);
+        pumpsByUnreservedAmount.remove(oldPump);
+        pumpsByUnreservedAmount.add(newPump);
+    }
+
+    /**
+     * Reserves gas on the pump chosen by the given strategy.
+     * 
+     * @return the pump the gas was reserved on, or null if no pump has enough gas left
+     */
+    ReservableGasPump reserve(PumpSelectionStrategy strategy, long milliliters) {
+
+        ReservableGasPump pump = strategy.select(this, milliliters);
+
+        if (pump != null) {
+            // the sorting key changes, so the pump has to be taken out of the index meanwhile
+            pumpsByUnreservedAmount.remove(pump);
+            pump.reserve(milliliters);
+            pumpsByUnreservedAmount.add(pump);
+        }
+
+        return pump;
+    }
+
+    /**
+     * Reserves gas across as few pumps as possible, starting with the one with the most gas left, when no single pump
+     * has enough of it. Either the whole amount is reserved or nothing is.
+     * 
+     * @return the reservations taken, or null if all the pumps together do not have enough gas left
+     */
+    PumpReservation[] reserveAcrossPumps(long milliliters) {
+
+        List<ReservableGasPump> selected = new ArrayList<ReservableGasPump>();
+        long selectedMilliliters = 0;
+
+        Iterator<ReservableGasPump> fullestFirst = pumpsByUnreservedAmount.descendingIterator();
+        while (selectedMilliliters < milliliters && fullestFirst.hasNext()) {
+            ReservableGasPump pump = fullestFirst.next();
+            if (pump.getUnreservedMilliliters() == 0) {
+                break;
+            }
+            selected.add(pump);
+            selectedMilliliters += pump.getUnreservedMilliliters();
+        }
+
+        if (selectedMilliliters < milliliters) {
+            return null;
+        }
+
+        PumpReservation[] reservations = new PumpReservation[selected.size()];
+        long pendingMilliliters = milliliters;
+
+        for (int i = 0; i < reservations.length; i++) {
+
+            ReservableGasPump pump = selected.get(i);
+            long share = Math.min(pendingMilliliters, pump.getUnreservedMilliliters());
+
+            pumpsByUnreservedAmount.remove(pump);
+            pump.reserve(share);
+            pumpsByUnreservedAmount.add(pump);
+
+            reservations[i] = new PumpReservation(pump, share, FixedPoint.toLiters(share));
+            pendingMilliliters -= share;
+        }
+
+        return reservations;
+    }
+
+    List<ReservableGasPump> getPumps() {
+        return pumps;
+    }
+
+    /**
+     * @return the pump with the least gas left that still has the given amount, or null if there is none
+     */
+    ReservableGasPump getSmallestPumpWith(long milliliters) {
+        searchKey.setUnreservedMilliliters(milliliters);
+        return pumpsByUnreservedAmount.ceiling(searchKey);
+    }
+
+    /**
+     * @return the position of the pump a round robin selection should look at first, moving the cursor forward
+     */
+    int nextPumpInTurn() {
+        int position = nextPump;
+        nextPump = pumps.isEmpty() ? 0 : (nextPump + 1) % pumps.size();
+        return position;
+    }
+
+}
@@ -0,0 +1,49 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+/**
+ * 
+ * This class records the gas reserved on one pump for a sale. A sale normally has a single reservation, but it gets one
+ * per pump when its gas is split across several pumps. Gas reserved in the FuelTank feeding the pump is drawn from it,
+ * and the pump only meters it.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+final class PumpReservation {
+
+    private final ReservableGasPump pump;
+    private final long milliliters;
+    private final double amountInLiters;
+    private final FuelTank fuelTank;
+
+    PumpReservation(ReservableGasPump pump, long milliliters, double amountInLiters) {
+        this(pump, milliliters, amountInLiters, null);
+    }
+
+    PumpReservation(ReservableGasPump pump, long milliliters, double amountInLiters, FuelTank fuelTank) {
+        this.pump = pump;
+        this.milliliters = milliliters;
+        this.amountInLiters = amountInLiters;
+        this.fuelTank = fuelTank;
+    }
+
+    ReservableGasPump getPump() {
+        return pump;
+    }
+
+    long getMilliliters() {
+        return milliliters;
+    }
+
+    double getAmountInLiters() {
+        return amountInLiters;
+    }
+
+    /**
+     * @return the tank the gas was reserved in, or null if it was reserved on the pump itself
+     */
+    FuelTank getFuelTank() {
+        return fuelTank;
+    }
+
+}
@@ -0,0 +1,91 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.List;
+
+/**
+ * 
+ * This enumeration lists the ways a gas station can choose the pump that serves a customer. Strategies only look at the
+ * pumps of the gas type the customer wants, and only pick pumps that have enough gas left to reserve.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public enum PumpSelectionStrategy {
+
+    /**
+     * The first pump added to the station that has enough gas. This was the only behaviour before strategies existed.
+     */
+    FIRST_FIT {
+
+        @Override
+        ReservableGasPump select(PumpGroup group, long milliliters) {
+
+            for (ReservableGasPump pump : group.getPumps()) {
+                if (pump.canServe(milliliters)) {
+                    return pump;
+                }
+            }
+            return null;
+        }
+    },
+
+    /**
+     * The pump with the least gas left that is still enough, keeping the fullest pumps for the biggest orders.
+     */
+    BEST_FIT {
+
+        @Override
+        ReservableGasPump select(PumpGroup group, long milliliters) {
+            return group.getSmallestPumpWith(milliliters);
+        }
+    },
+
+    /**
+     * The pump with the fewest customers being served or waiting on it.
+     */
+    LEAST_BUSY {
+
+        @Override
+        ReservableGasPump select(PumpGroup group, long milliliters) {
+
+            ReservableGasPump selected = null;
+
+            for (ReservableGasPump pump : group.getPumps()) {
+                if (pump.canServe(milliliters)
+                        && (selected == null || pump.getNumberOfCustomers() < selected.getNumberOfCustomers())) {
+                    selected = pump;
+                }
+            }
+            return selected;
+        }
+    },
+
+    /**
+     * The pumps take turns, skipping those without enough gas.
+     */
+    ROUND_ROBIN {
+
+        @Override
+        ReservableGasPump select(PumpGroup group, long milliliters) {
+
+            List<ReservableGasPump> pumps = group.getPumps();
+            int first = group.nextPumpInTurn();
+
+            for (int i = 0; i < pumps.size(); i++) {
+                ReservableGasPump pump = pumps.get((first + i) % pumps.size());
+                if (pump.canServe(milliliters)) {
+                    return pump;
+                }
+            }
+            return null;
+        }
+    };
+
+    /**
+     * Chooses a pump of the group with enough gas left to reserve the given amount, without reserving it.
+     * 
+     * @return the chosen pump, or null if no pump has enough gas left
+     */
+    abstract ReservableGasPump select(PumpGroup group, long milliliters);
+
+}
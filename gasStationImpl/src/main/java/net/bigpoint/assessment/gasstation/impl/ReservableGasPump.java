@@ -0,0 +1,198 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ *
+ * This class wraps a GasPump so that gas can be reserved on it before it is actually pumped.
+ *
+ * Reservations are meant to be taken inside a short critical section owned by the PumpGroup of the pump, while the
+ * slow pumping happens afterwards under the own lock of the pump, so that only one thread at a time calls
+ * GasPump.pumpGas(double) as required by GasPump.
+ *
+ * Work for the pump can also be queued with runInTurn(Runnable, Executor): queued tasks run one after the other on a
+ * shared executor, so waiting customers do not need a thread of their own.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+final class ReservableGasPump {
+
+    /**
+     * Orders pumps by the gas they have left to reserve, and then by the order in which they were added.
+     */
+    static final Comparator<ReservableGasPump> BY_UNRESERVED_AMOUNT = new Comparator<ReservableGasPump>() {
+
+        public int compare(ReservableGasPump pump1, ReservableGasPump pump2) {
+            int result = Long.compare(pump1.unreservedMilliliters, pump2.unreservedMilliliters);
+            return result != 0 ? result : Long.compare(pump1.sequence, pump2.sequence);
+        }
+    };
+
+    private final GasPump gasPump;
+    private final long sequence;
+    private final Lock pumpLock = new ReentrantLock();
+
+    // customers that reserved gas on this pump and are not done yet
+    private final AtomicInteger customers = new AtomicInteger();
+
+    private final Queue<Runnable> queuedTasks = new ConcurrentLinkedQueue<Runnable>();
+    private final AtomicBoolean runningTasks = new AtomicBoolean();
+
+    // guarded by the monitor of the pump group
+    private long unreservedMilliliters;
+
+    // what the pump showed after its last use, safe to read from any thread
+    private volatile double remainingAmount;
+
+    ReservableGasPump(GasPump gasPump, long sequence) {
+        this.gasPump = gasPump;
+        this.sequence = sequence;
+        this.remainingAmount = gasPump.getRemainingAmount();
+        this.unreservedMilliliters = FixedPoint.toMilliliters(remainingAmount);
+    }
+
+    /**
+     * Creates a pump that is only meant to be used as a search key: it sorts before any real pump with the same amount
+     * of gas left.
+     */
+    static ReservableGasPump newSearchKey() {
+        return new ReservableGasPump();
+    }
+
+    private ReservableGasPump() {
+        this.gasPump = null;
+        this.sequence = -1;
+    }
+
+    /**
+     * Reserves the given amount of gas if this pump has enough of it left. Callers must hold the monitor of the pump
+     * group.
+     *
+     * @return true if the gas has been reserved
+     */
+    boolean reserve(long milliliters) {
+
+        if (unreservedMilliliters < milliliters) {
+            return false;
+        }
+
+        unreservedMilliliters -= milliliters;
+        customers.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Counts a customer whose gas was reserved somewhere else, in the tank feeding this pump.
+     */
+    void addCustomer() {
+        customers.incrementAndGet();
+    }
+
+    boolean canServe(long milliliters) {
+        return unreservedMilliliters >= milliliters;
+    }
+
+    long getUnreservedMilliliters() {
+        return unreservedMilliliters;
+    }
+
+    void setUnreservedMilliliters(long milliliters) {
+        this.unreservedMilliliters = milliliters;
+    }
+
+    int getNumberOfCustomers() {
+        return customers.get();
+    }
+
+    /**
+     * Pumps gas previously reserved on this pump, waiting for any other customer currently using it.
+     */
+    void dispense(GasPumpDriver driver, double amountInLiters) {
+
+        pumpLock.lock();
+        try {
+            driver.pumpGas(gasPump, amountInLiters);
+            remainingAmount = gasPump.getRemainingAmount();
+        } finally {
+            pumpLock.unlock();
+            customers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Pumps gas reserved in the tank feeding this pump, waiting for any other customer currently using it. The pump
+     * takes as long as ever, but the gas does not come from its own, which is left as it is.
+     */
+    void dispenseFromTank(GasPumpDriver driver, double amountInLiters) {
+
+        pumpLock.lock();
+        try {
+            driver.meterGas(gasPump, amountInLiters);
+        } finally {
+            pumpLock.unlock();
+            customers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues a task for this pump. Tasks run in the order they were queued, never two at the same time, on a thread of
+     * the given executor.
+     */
+    void runInTurn(Runnable task, Executor executor) {
+
+        queuedTasks.add(task);
+
+        if (runningTasks.compareAndSet(false, true)) {
+            executor.execute(() -> runQueuedTasks(executor));
+        }
+    }
+
+    private void runQueuedTasks(Executor executor) {
+
+        do {
+            Runnable task;
+            while ((task = queuedTasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // tasks report their own failures, the ones behind must still run
+                } catch (Error e) {
+                    // this thread is done for, but the pump must not stay marked as running: the tasks behind go on
+                    // on another thread
+                    runningTasks.set(false);
+                    if (!queuedTasks.isEmpty() && runningTasks.compareAndSet(false, true)) {
+                        executor.execute(() -> runQueuedTasks(executor));
+                    }
+                    throw e;
+                }
+            }
+            runningTasks.set(false);
+
+            // a task may have been queued after the last poll but before the flag was cleared
+        } while (!queuedTasks.isEmpty() && runningTasks.compareAndSet(false, true));
+    }
+
+    double getRemainingAmount() {
+        return remainingAmount;
+    }
+
+    GasType getGasType() {
+        return gasPump.getGasType();
+    }
+
+    GasPump getGasPump() {
+        return gasPump;
+    }
+
+}
@@ -0,0 +1,216 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ *
+ * This class keeps the sales figures of a gas station per gas type.
+ *
+ * Every figure is a striped adder indexed by the ordinal of the gas type, so recording a sale or a cancellation neither
+ * allocates nor locks, and several threads can record at the same time without contending on a single counter.
+ *
+ * Volumes are accumulated in milliliters and money in micro-euros (see FixedPoint), so the totals are exact.
+ *
+ * Writers also count the updates they start and finish. A reader that sees no update in flight before and after copying
+ * all the figures knows that its copy is consistent, without blocking any writer. A reader that keeps failing to copy
+ * between updates closes a gate that holds back new updates until the updates in flight are finished and it has
+ * copied the figures, so it cannot starve under a steady stream of writes.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class SalesLedger {
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    // copies a reader tries without blocking anybody before it closes the gate
+    private static final int OPTIMISTIC_COPIES = 4;
+
+    private final LongAdder[] millilitersOfGasSold = newLongAdders();
+    private final LongAdder[] microEurosEarned = newLongAdders();
+    private final LongAdder[] numberOfSuccessfulSales = newLongAdders();
+    private final LongAdder[] cancellationsNoGas = newLongAdders();
+    private final LongAdder[] cancellationsTooExpensive = newLongAdders();
+
+    private final LongAdder startedUpdates = new LongAdder();
+    private final LongAdder finishedUpdates = new LongAdder();
+
+    private final Object gate = new Object();
+    private volatile boolean gateClosed;
+
+    public void recordSale(GasType type, long milliliters, long microEuros) {
+        int index = type.ordinal();
+        startUpdate();
+        millilitersOfGasSold[index].add(milliliters);
+        microEurosEarned[index].add(microEuros);
+        numberOfSuccessfulSales[index].increment();
+        finishedUpdates.increment();
+    }
+
+    public void recordCancellationNoGas(GasType type) {
+        startUpdate();
+        cancellationsNoGas[type.ordinal()].increment();
+        finishedUpdates.increment();
+    }
+
+    public void recordCancellationTooExpensive(GasType type) {
+        startUpdate();
+        cancellationsTooExpensive[type.ordinal()].increment();
+        finishedUpdates.increment();
+    }
+
+    /**
+     * Records the outcome of many purchases as a single update. Every array is indexed by gas type ordinal.
+     */
+    public void recordBatch(long[] milliliters, long[] microEuros, int[] successfulSales, int[] cancellationsNoGas,
+            int[] cancellationsTooExpensive) {
+
+        startUpdate();
+
+        for (int i = 0; i < GAS_TYPES.length; i++) {
+            if (successfulSales[i] != 0) {
+                millilitersOfGasSold[i].add(milliliters[i]);
+                microEurosEarned[i].add(microEuros[i]);
+                numberOfSuccessfulSales[i].add(successfulSales[i]);
+            }
+            if (cancellationsNoGas[i] != 0) {
+                this.cancellationsNoGas[i].add(cancellationsNoGas[i]);
+            }
+            if (cancellationsTooExpensive[i] != 0) {
+                this.cancellationsTooExpensive[i].add(cancellationsTooExpensive[i]);
+            }
+        }
+
+        finishedUpdates.increment();
+    }
+
+    /**
+     * Copies all the figures, indexed by gas type ordinal, into the given arrays so that they all belong to the same
+     * point in time. Retries a few times while updates are in flight, then holds back new updates for as long as the
+     * updates in flight take to finish.
+     *
+     * @return the number of updates recorded so far, which works as the version of the copied figures
+     */
+    public long copyTo(double[] litersOfGasSold, double[] revenueEarned, int[] numberOfSuccessfulSales,
+            int[] cancellationsNoGas, int[] cancellationsTooExpensive) {
+
+        for (int i = 0; i < OPTIMISTIC_COPIES; i++) {
+            long version = tryCopyTo(litersOfGasSold, revenueEarned, numberOfSuccessfulSales, cancellationsNoGas,
+                    cancellationsTooExpensive);
+            if (version >= 0) {
+                return version;
+            }
+            Thread.yield();
+        }
+
+        synchronized (gate) {
+            gateClosed = true;
+            try {
+                // only the updates already in flight are left, and they do not wait for the gate
+                while (true) {
+                    long version = tryCopyTo(litersOfGasSold, revenueEarned, numberOfSuccessfulSales,
+                            cancellationsNoGas, cancellationsTooExpensive);
+                    if (version >= 0) {
+                        return version;
+                    }
+                    Thread.yield();
+                }
+            } finally {
+                gateClosed = false;
+            }
+        }
+    }
+
+    /**
+     * @return the version of the copied figures, or -1 if an update was in flight and the copy has to be retried
+     */
+    private long tryCopyTo(double[] litersOfGasSold, double[] revenueEarned, int[] numberOfSuccessfulSales,
+            int[] cancellationsNoGas, int[] cancellationsTooExpensive) {
+
+        // finished is read first and started last: if they match, nothing changed in between
+        long version = finishedUpdates.sum();
+
+        for (int i = 0; i < GAS_TYPES.length; i++) {
+            litersOfGasSold[i] = FixedPoint.toLiters(millilitersOfGasSold[i].sum());
+            revenueEarned[i] = FixedPoint.toEuros(microEurosEarned[i].sum());
+            numberOfSuccessfulSales[i] = this.numberOfSuccessfulSales[i].intValue();
+            cancellationsNoGas[i] = this.cancellationsNoGas[i].intValue();
+            cancellationsTooExpensive[i] = this.cancellationsTooExpensive[i].intValue();
+        }
+
+        return startedUpdates.sum() == version ? version : -1L;
+    }
+
+    private void startUpdate() {
+
+        // the reader holding the gate closed releases its monitor once it has copied the figures
+        while (gateClosed) {
+            synchronized (gate) {
+                // nothing to do but wait for the gate to open
+            }
+        }
+
+        startedUpdates.increment();
+    }
+
+    public double getAmountSold(GasType type) {
+        return FixedPoint.toLiters(millilitersOfGasSold[type.ordinal()].sum());
+    }
+
+    public double getRevenue() {
+        return FixedPoint.toEuros(sum(microEurosEarned));
+    }
+
+    public double getRevenue(GasType type) {
+        return FixedPoint.toEuros(microEurosEarned[type.ordinal()].sum());
+    }
+
+    public int getNumberOfSales() {
+        return (int) sum(numberOfSuccessfulSales);
+    }
+
+    public int getNumberOfSales(GasType type) {
+        return numberOfSuccessfulSales[type.ordinal()].intValue();
+    }
+
+    public int getNumberOfCancellationsNoGas() {
+        return (int) sum(cancellationsNoGas);
+    }
+
+    public int getNumberOfCancellationsNoGas(GasType type) {
+        return cancellationsNoGas[type.ordinal()].intValue();
+    }
+
+    public int getNumberOfCancellationsTooExpensive() {
+        return (int) sum(cancellationsTooExpensive);
+    }
+
+    public int getNumberOfCancellationsTooExpensive(GasType type) {
+        return cancellationsTooExpensive[type.ordinal()].intValue();
+    }
+
+    private static long sum(LongAdder[] values) {
+
+        long total = 0;
+
+        for (LongAdder value : values) {
+            total += value.sum();
+        }
+
+        return total;
+    }
+
+    private static LongAdder[] newLongAdders() {
+
+        LongAdder[] adders = new LongAdder[GAS_TYPES.length];
+
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+
+        return adders;
+    }
+
+}
@@ -0,0 +1,214 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ *
+ * This class keeps the sales figures of a gas station over a sliding window of time, such as the last minute, so that
+ * rates can be read instead of lifetime totals.
+ *
+ * The window is a ring of slots, each counting the figures of a short interval. Recording adds to the slot of the
+ * current interval; the first thread to get to a slot whose interval is over replaces it with an empty one using a
+ * compare-and-set, so recording never locks and only allocates once per slot and interval. A thread that finds its
+ * slot replaced after adding to it records again in the current slot, so that nothing is lost with the discarded one.
+ * Reading adds up the slots that still belong to the window, so a rate moves in steps of one slot.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class SalesRates {
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    private static final int SALES = 0;
+    private static final int MILLILITERS = 1;
+    private static final int MICRO_EUROS = 2;
+    private static final int CANCELLATIONS_NO_GAS = 3;
+    private static final int CANCELLATIONS_TOO_EXPENSIVE = 4;
+    private static final int FIGURES = 5;
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final long slotNanos;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    /**
+     * A window of one minute, in slots of five seconds.
+     */
+    public SalesRates() {
+        this(1L, TimeUnit.MINUTES, 12, System::nanoTime);
+    }
+
+    /**
+     * @param numberOfSlots
+     *            how many intervals the window is split into: more slots make rates smoother but reads slower
+     * @param nanoClock
+     *            where the time comes from, in nanoseconds, as System.nanoTime()
+     */
+    public SalesRates(long window, TimeUnit unit, int numberOfSlots, LongSupplier nanoClock) {
+        this.slots = new AtomicReferenceArray<Slot>(numberOfSlots);
+        this.slotNanos = Math.max(1L, unit.toNanos(window) / numberOfSlots);
+        this.windowNanos = slotNanos * numberOfSlots;
+        this.nanoClock = nanoClock;
+    }
+
+    public void recordSale(GasType type, long milliliters, long microEuros) {
+
+        int index = type.ordinal() * FIGURES;
+        Slot slot;
+
+        do {
+            slot = currentSlot();
+            AtomicLongArray figures = slot.figures;
+            figures.incrementAndGet(index + SALES);
+            figures.addAndGet(index + MILLILITERS, milliliters);
+            figures.addAndGet(index + MICRO_EUROS, microEuros);
+        } while (isDiscarded(slot));
+    }
+
+    public void recordCancellationNoGas(GasType type) {
+        increment(type.ordinal() * FIGURES + CANCELLATIONS_NO_GAS);
+    }
+
+    public void recordCancellationTooExpensive(GasType type) {
+        increment(type.ordinal() * FIGURES + CANCELLATIONS_TOO_EXPENSIVE);
+    }
+
+    private void increment(int index) {
+
+        Slot slot;
+
+        do {
+            slot = currentSlot();
+            slot.figures.incrementAndGet(index);
+        } while (isDiscarded(slot));
+    }
+
+    /**
+     * @return true if the slot was replaced, or the rates reset, while a thread was adding to it
+     */
+    private boolean isDiscarded(Slot slot) {
+        return slots.get(slot.index) != slot;
+    }
+
+    private Slot currentSlot() {
+
+        long interval = Math.floorDiv(nanoClock.getAsLong(), slotNanos);
+        int index = (int) Math.floorMod(interval, (long) slots.length());
+
+        while (true) {
+            Slot slot = slots.get(index);
+
+            // a slot already moved on to a later interval is as good, the window just closed on this thread
+            if (slot != null && slot.interval >= interval) {
+                return slot;
+            }
+
+            Slot newSlot = new Slot(interval, index);
+            if (slots.compareAndSet(index, slot, newSlot)) {
+                return newSlot;
+            }
+        }
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+
+    public long getWindow(TimeUnit unit) {
+        return unit.convert(windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of sales within the window
+     */
+    public long getNumberOfSales(GasType type) {
+        return sum(type, SALES);
+    }
+
+    public double getAmountSold(GasType type) {
+        return FixedPoint.toLiters(sum(type, MILLILITERS));
+    }
+
+    public double getRevenue(GasType type) {
+        return FixedPoint.toEuros(sum(type, MICRO_EUROS));
+    }
+
+    public long getNumberOfCancellationsNoGas(GasType type) {
+        return sum(type, CANCELLATIONS_NO_GAS);
+    }
+
+    public long getNumberOfCancellationsTooExpensive(GasType type) {
+        return sum(type, CANCELLATIONS_TOO_EXPENSIVE);
+    }
+
+    /**
+     * @return the number of sales within the window, per minute
+     */
+    public double getSalesPerMinute(GasType type) {
+        return perMinute(getNumberOfSales(type));
+    }
+
+    public double getLitersPerMinute(GasType type) {
+        return perMinute(getAmountSold(type));
+    }
+
+    public double getRevenuePerMinute(GasType type) {
+        return perMinute(getRevenue(type));
+    }
+
+    public double getCancellationsNoGasPerMinute(GasType type) {
+        return perMinute(getNumberOfCancellationsNoGas(type));
+    }
+
+    public double getCancellationsTooExpensivePerMinute(GasType type) {
+        return perMinute(getNumberOfCancellationsTooExpensive(type));
+    }
+
+    private double perMinute(double figure) {
+        return figure * TimeUnit.MINUTES.toNanos(1L) / windowNanos;
+    }
+
+    private long sum(GasType type, int figure) {
+
+        long oldestInterval = Math.floorDiv(nanoClock.getAsLong(), slotNanos) - slots.length() + 1;
+        int index = type.ordinal() * FIGURES + figure;
+        long total = 0;
+
+        for (int i = 0; i < slots.length(); i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.interval >= oldestInterval) {
+                total += slot.figures.get(index);
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * The figures of one interval of the window.
+     */
+    private static final class Slot {
+
+        private final long interval;
+        private final int index;
+        private final AtomicLongArray figures = new AtomicLongArray(GAS_TYPES.length * FIGURES);
+
+        Slot(long interval, int index) {
+            this.interval = interval;
+            this.index = index;
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ * 
+ * This interface is told about everything that changes the state of a GasStationImpl, as it happens. Volumes are in
+ * milliliters and money in micro-euros (see FixedPoint).
+ * 
+ * Listeners are called on the threads of customers and pumps, often several at the same time, so they must be thread
+ * safe and must return quickly: anything slow should be handed over to a thread of their own.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public interface StationListener {
+
+    default void onPumpAdded(GasPump gasPump, long milliliters) {
+    }
+
+    default void onPumpRemoved(GasPump gasPump) {
+    }
+
+    /**
+     * @param version
+     *            the version of the PriceTable the new price belongs to
+     */
+    default void onPriceChanged(GasType type, long microEurosPerLiter, long version) {
+    }
+
+    /**
+     * A pump has pumped gas for a sale. A sale split across several pumps is told once per pump.
+     */
+    default void onGasPumped(GasPump gasPump, long milliliters) {
+    }
+
+    /**
+     * A tank has been given to the pumps of its gas type, replacing any tank they had.
+     */
+    default void onFuelTankAdded(GasType type, long capacityInMilliliters, long milliliters) {
+    }
+
+    /**
+     * A pump fed by a tank has pumped gas drawn from it for a sale, instead of gas of its own.
+     */
+    default void onFuelDrawn(GasPump gasPump, long milliliters) {
+    }
+
+    /**
+     * Gas has been poured into the tank of a gas type.
+     */
+    default void onFuelDelivered(GasType type, long milliliters) {
+    }
+
+    default void onSale(GasType type, long milliliters, long microEuros) {
+    }
+
+    default void onCancellationNoGas(GasType type) {
+    }
+
+    default void onCancellationTooExpensive(GasType type) {
+    }
+
+}
@@ -0,0 +1,58 @@
+package net.bigpoint.assessment.gasstation.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ *
+ * This class is what a GasStationImpl measures about itself while it runs: the sales figures of the last minute, and
+ * for every gas type how long customers waited for their pump to start on them and how long the pumping took.
+ *
+ * Everything is recorded without locks on the threads of the customers and the pumps. Exporters read the rates and
+ * take snapshots of the histograms, resetting them if they want figures per interval.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class StationMetrics {
+
+    private final SalesRates salesRates;
+    private final Map<GasType, LatencyHistogram> waitTimes = new EnumMap<GasType, LatencyHistogram>(GasType.class);
+    private final Map<GasType, LatencyHistogram> pumpTimes = new EnumMap<GasType, LatencyHistogram>(GasType.class);
+
+    StationMetrics() {
+        this(new SalesRates());
+    }
+
+    StationMetrics(SalesRates salesRates) {
+
+        this.salesRates = salesRates;
+
+        for (GasType gasType : GasType.values()) {
+            waitTimes.put(gasType, new LatencyHistogram());
+            pumpTimes.put(gasType, new LatencyHistogram());
+        }
+    }
+
+    public SalesRates getSalesRates() {
+        return salesRates;
+    }
+
+    /**
+     * @return the time from the arrival of a customer until a pump started pumping its gas, including any wait in line
+     *         and behind the earlier customers of the pump
+     */
+    public LatencyHistogram getWaitTimes(GasType type) {
+        return waitTimes.get(type);
+    }
+
+    /**
+     * @return the time from the moment a pump started pumping the gas of a customer until all of it was pumped
+     */
+    public LatencyHistogram getPumpTimes(GasType type) {
+        return pumpTimes.get(type);
+    }
+
+}
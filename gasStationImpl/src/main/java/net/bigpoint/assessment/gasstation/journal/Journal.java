@@ -0,0 +1,583 @@
+package net.bigpoint.assessment.gasstation.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.FixedPoint;
+import net.bigpoint.assessment.gasstation.impl.FuelTank;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.StationListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * This class keeps an append-only journal of everything that changes a gas station, so that the station can be rebuilt
+ * after a restart.
+ *
+ * The journal listens to the station: every change is added to a lock-free queue and returns at once, so customers
+ * never wait for the disk. A single writer thread drains the queue into memory-mapped segment files of fixed size and
+ * forces them to disk once per drained batch, so that many records share one commit. Segment files are named after
+ * the number of their first record.
+ *
+ * The writer also keeps a StationState up to date with every record it writes. Every so many records, and when the
+ * journal is closed, it writes that state to a compact snapshot file named after the number of records it covers, and
+ * deletes the snapshots and segments the new snapshot makes unnecessary. Since the state is only touched by the
+ * writer, snapshots are consistent without stopping the station.
+ *
+ * Opening a journal loads the latest snapshot in its directory and replays only the records written after it.
+ * recover(GasStationImpl) then gives that state to an empty gas station and starts journaling its changes.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class Journal implements StationListener, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Journal.class);
+
+    /**
+     * 24 MB segments.
+     */
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20;
+
+    public static final long DEFAULT_RECORDS_PER_SNAPSHOT = DEFAULT_RECORDS_PER_SEGMENT;
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    // how long the writer sleeps when there is nothing to write
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final long recordsPerSnapshot;
+    private final StationState state;
+    private final long replayedRecords;
+
+    private final Queue<JournalRecord> queuedRecords = new ConcurrentLinkedQueue<JournalRecord>();
+    private final AtomicLong enqueuedRecords = new AtomicLong();
+    private volatile long processedRecords;
+
+    private final AtomicLong requestedSnapshots = new AtomicLong();
+    private volatile long writtenSnapshots;
+
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private volatile Thread writer;
+    private GasStationImpl gasStation;
+
+    // turns the versions of the prices of the recovered gas station into versions later than any journaled before
+    private long priceVersionOffset;
+
+    // owned by the writer thread
+    private final StationState shadowState;
+    private long snapshotRecords;
+    private final Map<GasPump, Long> pumpIds = new IdentityHashMap<GasPump, Long>();
+    private long nextPumpId;
+    private long nextRecordNumber;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segment;
+
+    private Journal(Path directory, int recordsPerSegment, long recordsPerSnapshot, StationState state,
+            long replayedRecords, long snapshotRecords) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.recordsPerSnapshot = recordsPerSnapshot;
+        this.state = state;
+        this.replayedRecords = replayedRecords;
+        this.shadowState = state.copy();
+        this.snapshotRecords = snapshotRecords;
+        this.nextPumpId = state.getNextPumpId();
+        this.nextRecordNumber = state.getNumberOfRecords();
+    }
+
+    public static Journal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_RECORDS_PER_SEGMENT, DEFAULT_RECORDS_PER_SNAPSHOT);
+    }
+
+    /**
+     * Opens the journal kept in the given directory, creating it if needed, and rebuilds the state of the gas station
+     * from its latest snapshot and the records written after it.
+     */
+    public static Journal open(Path directory, int recordsPerSegment, long recordsPerSnapshot) throws IOException {
+
+        Files.createDirectories(directory);
+
+        List<Path> snapshots = listFiles(directory, SNAPSHOT_SUFFIX);
+        StationState state = snapshots.isEmpty() ? new StationState()
+                : readSnapshot(snapshots.get(snapshots.size() - 1));
+        long snapshotRecords = state.getNumberOfRecords();
+
+        for (Path segment : listFiles(directory, SEGMENT_SUFFIX)) {
+            replay(segment, state);
+        }
+
+        long replayedRecords = state.getNumberOfRecords() - snapshotRecords;
+        logger.debug("Recovered {} journal records from {}, {} of them replayed", new Object[] {
+                state.getNumberOfRecords(), directory, replayedRecords });
+
+        return new Journal(directory, recordsPerSegment, recordsPerSnapshot, state, replayedRecords, snapshotRecords);
+    }
+
+    /**
+     * @return the files with the given suffix, in the order they were written
+     */
+    private static List<Path> listFiles(Path directory, String suffix) throws IOException {
+
+        List<Path> paths = new ArrayList<Path>();
+
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + suffix);
+        try {
+            for (Path file : files) {
+                paths.add(file);
+            }
+        } finally {
+            files.close();
+        }
+
+        // names are zero padded record numbers, so they sort in the order they were written
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private static long getFirstRecordNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+
+    private static StationState readSnapshot(Path snapshot) throws IOException {
+
+        InputStream input = new BufferedInputStream(Files.newInputStream(snapshot));
+        try {
+            return StationState.readFrom(new DataInputStream(input));
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Applies the records of a segment that the state does not cover yet.
+     */
+    private static void replay(Path segment, StationState state) throws IOException {
+
+        long recordNumber = getFirstRecordNumber(segment);
+        if (recordNumber > state.getNumberOfRecords()) {
+            throw new IOException("Journal records " + state.getNumberOfRecords() + " to " + recordNumber
+                    + " are missing");
+        }
+
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer records = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            int end = records.capacity() - records.capacity() % JournalRecord.SIZE;
+
+            // skips what the snapshot already covers
+            int start = (int) Math.min(end, (state.getNumberOfRecords() - recordNumber) * JournalRecord.SIZE);
+
+            for (int position = start; position < end; position += JournalRecord.SIZE) {
+
+                byte kind = JournalRecord.readKind(records, position);
+                if (kind == JournalRecord.END) {
+                    break;
+                }
+
+                state.apply(kind, JournalRecord.readGasType(records, position),
+                        JournalRecord.readFirst(records, position), JournalRecord.readSecond(records, position));
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Gives the replayed state to a gas station without pumps, and journals every change of the station from then
+     * on. A journal can only recover one gas station.
+     *
+     * @return the given gas station
+     */
+    public synchronized GasStationImpl recover(GasStationImpl gasStation) {
+
+        if (this.gasStation != null || closed) {
+            throw new IllegalStateException("This journal is already in use");
+        }
+        if (!gasStation.getGasPumps().isEmpty()) {
+            throw new IllegalArgumentException("Only a gas station without pumps can be recovered");
+        }
+
+        for (Long pumpId : state.getPumpIds()) {
+            GasPump gasPump = new GasPump(state.getPumpGasType(pumpId), FixedPoint.toLiters(state
+                    .getPumpMilliliters(pumpId)));
+            gasStation.addGasPump(gasPump);
+            pumpIds.put(gasPump, pumpId);
+        }
+
+        GasType[] gasTypes = GasType.values();
+        long[] millilitersSold = new long[gasTypes.length];
+        long[] microEurosEarned = new long[gasTypes.length];
+        int[] numberOfSales = new int[gasTypes.length];
+        int[] cancellationsNoGas = new int[gasTypes.length];
+        int[] cancellationsTooExpensive = new int[gasTypes.length];
+
+        for (GasType gasType : gasTypes) {
+            int index = gasType.ordinal();
+            if (state.hasFuelTank(gasType)) {
+                gasStation.addFuelTank(new FuelTank(gasType, FixedPoint.toLiters(state.getFuelTankCapacity(gasType)),
+                        FixedPoint.toLiters(state.getFuelTankMilliliters(gasType))));
+            }
+            gasStation.setPrice(gasType, FixedPoint.toEuros(state.getMicroEurosPerLiter(gasType)));
+            millilitersSold[index] = state.getMillilitersSold(gasType);
+            microEurosEarned[index] = state.getMicroEurosEarned(gasType);
+            numberOfSales[index] = (int) state.getNumberOfSales(gasType);
+            cancellationsNoGas[index] = (int) state.getNumberOfCancellationsNoGas(gasType);
+            cancellationsTooExpensive[index] = (int) state.getNumberOfCancellationsTooExpensive(gasType);
+        }
+
+        gasStation.getSalesLedger().recordBatch(millilitersSold, microEurosEarned, numberOfSales, cancellationsNoGas,
+                cancellationsTooExpensive);
+
+        // the new gas station numbers its prices from scratch
+        priceVersionOffset = state.getLatestPriceVersion() - gasStation.getPriceTable().getVersion();
+
+        this.gasStation = gasStation;
+
+        writer = new Thread(this::writeRecords, "gas-station-journal");
+        writer.setDaemon(true);
+        writer.start();
+
+        gasStation.addStationListener(this);
+        return gasStation;
+    }
+
+    /**
+     * @return the state recovered when the journal was opened
+     */
+    public StationState getRecoveredState() {
+        return state;
+    }
+
+    /**
+     * @return the number of records replayed when the journal was opened, besides those covered by the snapshot
+     */
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public void onPumpAdded(GasPump gasPump, long milliliters) {
+        enqueue(new JournalRecord(JournalRecord.PUMP_ADDED, gasPump.getGasType(), gasPump, 0L, milliliters));
+    }
+
+    @Override
+    public void onPumpRemoved(GasPump gasPump) {
+        enqueue(new JournalRecord(JournalRecord.PUMP_REMOVED, gasPump.getGasType(), gasPump, 0L, 0L));
+    }
+
+    @Override
+    public void onPriceChanged(GasType type, long microEurosPerLiter, long version) {
+        enqueue(new JournalRecord(JournalRecord.PRICE_CHANGED, type, null, microEurosPerLiter,
+                version + priceVersionOffset));
+    }
+
+    @Override
+    public void onGasPumped(GasPump gasPump, long milliliters) {
+        enqueue(new JournalRecord(JournalRecord.GAS_PUMPED, gasPump.getGasType(), gasPump, 0L, milliliters));
+    }
+
+    @Override
+    public void onFuelTankAdded(GasType type, long capacityInMilliliters, long milliliters) {
+        enqueue(new JournalRecord(JournalRecord.FUEL_TANK_ADDED, type, null, capacityInMilliliters, milliliters));
+    }
+
+    @Override
+    public void onFuelDrawn(GasPump gasPump, long milliliters) {
+        enqueue(new JournalRecord(JournalRecord.FUEL_DRAWN, gasPump.getGasType(), null, milliliters, 0L));
+    }
+
+    @Override
+    public void onFuelDelivered(GasType type, long milliliters) {
+        enqueue(new JournalRecord(JournalRecord.FUEL_DELIVERED, type, null, milliliters, 0L));
+    }
+
+    @Override
+    public void onSale(GasType type, long milliliters, long microEuros) {
+        enqueue(new JournalRecord(JournalRecord.SALE, type, null, milliliters, microEuros));
+    }
+
+    @Override
+    public void onCancellationNoGas(GasType type) {
+        enqueue(new JournalRecord(JournalRecord.CANCELLATION_NO_GAS, type, null, 0L, 0L));
+    }
+
+    @Override
+    public void onCancellationTooExpensive(GasType type) {
+        enqueue(new JournalRecord(JournalRecord.CANCELLATION_TOO_EXPENSIVE, type, null, 0L, 0L));
+    }
+
+    private void enqueue(JournalRecord record) {
+
+        // nobody would ever drain the queue
+        if (failure != null) {
+            return;
+        }
+
+        queuedRecords.add(record);
+        enqueuedRecords.incrementAndGet();
+    }
+
+    /**
+     * Waits until every change journaled so far is on disk.
+     */
+    public void flush() throws IOException {
+
+        long target = enqueuedRecords.get();
+
+        while (processedRecords < target) {
+            checkFailure();
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, IDLE_NANOS / 10);
+        }
+
+        checkFailure();
+    }
+
+    /**
+     * Waits until a snapshot with every change journaled so far has been written.
+     */
+    public void snapshot() throws IOException {
+
+        long request = requestedSnapshots.incrementAndGet();
+
+        while (writtenSnapshots < request) {
+            checkFailure();
+            if (writer == null || !writer.isAlive()) {
+                throw new IllegalStateException("The journal is not in use");
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, IDLE_NANOS / 10);
+        }
+    }
+
+    /**
+     * Stops journaling the gas station, after writing every change journaled so far and a snapshot of them.
+     */
+    public void close() throws IOException {
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        if (gasStation != null) {
+            gasStation.removeStationListener(this);
+        }
+
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            boolean interrupted = false;
+            while (writer.isAlive()) {
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("The journal could not be written", failure);
+        }
+    }
+
+    private void writeRecords() {
+
+        try {
+            while (true) {
+
+                // read before draining, so that everything queued before closing or asking for a snapshot is written
+                boolean closing = closed;
+                long snapshotRequests = requestedSnapshots.get();
+                long drained = 0;
+
+                JournalRecord record;
+                while ((record = queuedRecords.poll()) != null) {
+                    write(record);
+                    drained++;
+                }
+
+                if (drained > 0) {
+                    // group commit: one force for everything drained, unless all of it was skipped
+                    if (segment != null) {
+                        segment.force();
+                    }
+                    processedRecords += drained;
+                }
+
+                long recordsSinceSnapshot = shadowState.getNumberOfRecords() - snapshotRecords;
+                if (recordsSinceSnapshot >= recordsPerSnapshot || snapshotRequests > writtenSnapshots
+                        || (closing && drained == 0 && recordsSinceSnapshot > 0)) {
+                    writeSnapshot();
+                    writtenSnapshots = snapshotRequests;
+                }
+
+                if (drained == 0) {
+                    if (closing) {
+                        break;
+                    }
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+            }
+        } catch (Throwable e) {
+            // whatever stopped the writer, flush() and close() have to report it
+            failure = e;
+            queuedRecords.clear();
+            logger.error("The journal in {} could not be written", directory, e);
+        } finally {
+            closeSegment();
+        }
+    }
+
+    private void write(JournalRecord record) throws IOException {
+
+        long first = record.getFirst();
+
+        switch (record.getKind()) {
+        case JournalRecord.PUMP_ADDED:
+            first = nextPumpId++;
+            pumpIds.put(record.getGasPump(), first);
+            break;
+        case JournalRecord.PUMP_REMOVED:
+        case JournalRecord.GAS_PUMPED:
+            Long pumpId = record.getKind() == JournalRecord.PUMP_REMOVED ? pumpIds.remove(record.getGasPump())
+                    : pumpIds.get(record.getGasPump());
+            if (pumpId == null) {
+                // gas pumped by a pump removed meanwhile no longer matters
+                return;
+            }
+            first = pumpId;
+            break;
+        default:
+            break;
+        }
+
+        if (segment == null || !segment.hasRemaining()) {
+            openSegment();
+        }
+
+        int position = segment.position();
+        JournalRecord.write(segment, position, record.getKind(), record.getGasType(), first, record.getSecond());
+        segment.position(position + JournalRecord.SIZE);
+        nextRecordNumber++;
+
+        shadowState.apply(record.getKind(), record.getGasType(), first, record.getSecond());
+    }
+
+    /**
+     * Writes the state covering every record written so far, then deletes the older snapshots and the segments whose
+     * records are all covered by it. Callers must have forced the current segment.
+     */
+    private void writeSnapshot() throws IOException {
+
+        long coveredRecords = shadowState.getNumberOfRecords();
+        Path snapshot = directory.resolve(String.format("%020d%s", coveredRecords, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(snapshot.getFileName() + TEMPORARY_SUFFIX);
+
+        FileOutputStream file = new FileOutputStream(temporary.toFile());
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file));
+            shadowState.writeTo(output);
+            output.flush();
+            file.getFD().sync();
+        } finally {
+            file.close();
+        }
+
+        // a snapshot is either complete or not there at all
+        Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        snapshotRecords = coveredRecords;
+
+        for (Path oldSnapshot : listFiles(directory, SNAPSHOT_SUFFIX)) {
+            if (getFirstRecordNumber(oldSnapshot) < coveredRecords) {
+                Files.delete(oldSnapshot);
+            }
+        }
+
+        // a segment is no longer needed once the next one starts within the snapshot
+        List<Path> segments = listFiles(directory, SEGMENT_SUFFIX);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (getFirstRecordNumber(segments.get(i + 1)) <= coveredRecords) {
+                Files.delete(segments.get(i));
+            }
+        }
+
+        logger.debug("Wrote a snapshot of {} journal records to {}", coveredRecords, directory);
+    }
+
+    private void openSegment() throws IOException {
+
+        if (segment != null) {
+            segment.force();
+            closeSegment();
+        }
+
+        Path file = directory.resolve(String.format("%020d%s", nextRecordNumber, SEGMENT_SUFFIX));
+        segmentChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segment = segmentChannel.map(MapMode.READ_WRITE, 0, (long) recordsPerSegment * JournalRecord.SIZE);
+    }
+
+    private void closeSegment() {
+
+        if (segmentChannel != null) {
+            try {
+                segmentChannel.close();
+            } catch (IOException e) {
+                logger.warn("Could not close a journal segment in {}", directory, e);
+            }
+        }
+
+        segmentChannel = null;
+        segment = null;
+    }
+
+}
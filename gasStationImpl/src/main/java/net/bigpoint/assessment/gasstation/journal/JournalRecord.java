@@ -0,0 +1,96 @@
+package net.bigpoint.assessment.gasstation.journal;
+
+import java.nio.ByteBuffer;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ * 
+ * This class is one change of a gas station waiting to be written to the journal, and it also defines how records are
+ * laid out on disk.
+ * 
+ * Every record takes SIZE bytes: its kind, the ordinal of its gas type, two reserved bytes and two long values whose
+ * meaning depends on the kind. The kind is written last, so a record that was not completely written reads as the end
+ * of the journal, as does the zeroed tail of a segment.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+final class JournalRecord {
+
+    static final int SIZE = 24;
+
+    static final byte END = 0;
+    static final byte PUMP_ADDED = 1; // first: pump id, second: milliliters
+    static final byte PUMP_REMOVED = 2; // first: pump id
+    static final byte PRICE_CHANGED = 3; // first: micro-euros per liter, second: price table version
+    static final byte GAS_PUMPED = 4; // first: pump id, second: milliliters
+    static final byte SALE = 5; // first: milliliters, second: micro-euros
+    static final byte CANCELLATION_NO_GAS = 6;
+    static final byte CANCELLATION_TOO_EXPENSIVE = 7;
+    static final byte FUEL_TANK_ADDED = 8; // first: capacity in milliliters, second: milliliters
+    static final byte FUEL_DRAWN = 9; // first: milliliters
+    static final byte FUEL_DELIVERED = 10; // first: milliliters
+
+    private static final byte NO_GAS_TYPE = -1;
+
+    private final byte kind;
+    private final GasType gasType;
+    private final GasPump gasPump; // pumps get their id when the record is written
+    private final long first;
+    private final long second;
+
+    JournalRecord(byte kind, GasType gasType, GasPump gasPump, long first, long second) {
+        this.kind = kind;
+        this.gasType = gasType;
+        this.gasPump = gasPump;
+        this.first = first;
+        this.second = second;
+    }
+
+    static void write(ByteBuffer buffer, int position, byte kind, GasType gasType, long first, long second) {
+        buffer.putLong(position + 8, first);
+        buffer.putLong(position + 16, second);
+        buffer.put(position + 1, gasType == null ? NO_GAS_TYPE : (byte) gasType.ordinal());
+        buffer.put(position, kind);
+    }
+
+    static byte readKind(ByteBuffer buffer, int position) {
+        return buffer.get(position);
+    }
+
+    static GasType readGasType(ByteBuffer buffer, int position) {
+        byte ordinal = buffer.get(position + 1);
+        return ordinal == NO_GAS_TYPE ? null : GasType.values()[ordinal];
+    }
+
+    static long readFirst(ByteBuffer buffer, int position) {
+        return buffer.getLong(position + 8);
+    }
+
+    static long readSecond(ByteBuffer buffer, int position) {
+        return buffer.getLong(position + 16);
+    }
+
+    byte getKind() {
+        return kind;
+    }
+
+    GasType getGasType() {
+        return gasType;
+    }
+
+    GasPump getGasPump() {
+        return gasPump;
+    }
+
+    long getFirst() {
+        return first;
+    }
+
+    long getSecond() {
+        return second;
+    }
+
+}
@@ -0,0 +1,292 @@
+package net.bigpoint.assessment.gasstation.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+/**
+ * 
+ * This class is the state of a gas station as rebuilt from its journal: the pumps still in service with the gas they
+ * have left, the tanks feeding them with the gas they have left, the prices and the sales figures per gas type. Volumes
+ * are in milliliters and money in micro-euros.
+ * 
+ * It is not thread safe: it is only meant to be updated by the thread replaying or writing the journal. It can be
+ * written to and read from a compact binary snapshot, so that a restart only replays the journal written after it.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class StationState {
+
+    private static final int NUMBER_OF_GAS_TYPES = GasType.values().length;
+
+    private static final int SNAPSHOT_MAGIC = 0x47535353; // "GSSS"
+    private static final int SNAPSHOT_FORMAT = 3;
+
+    private final Map<Long, GasType> pumpGasTypes = new LinkedHashMap<Long, GasType>();
+    private final Map<Long, Long> pumpMilliliters = new LinkedHashMap<Long, Long>();
+    private long nextPumpId;
+
+    private final long[] microEurosPerLiter = new long[NUMBER_OF_GAS_TYPES];
+    private final long[] priceVersions = new long[NUMBER_OF_GAS_TYPES];
+
+    private final boolean[] fuelTanks = new boolean[NUMBER_OF_GAS_TYPES];
+    private final long[] fuelTankCapacities = new long[NUMBER_OF_GAS_TYPES];
+    private final long[] fuelTankMilliliters = new long[NUMBER_OF_GAS_TYPES];
+
+    private final long[] millilitersSold = new long[NUMBER_OF_GAS_TYPES];
+    private final long[] microEurosEarned = new long[NUMBER_OF_GAS_TYPES];
+    private final long[] numberOfSales = new long[NUMBER_OF_GAS_TYPES];
+    private final long[] cancellationsNoGas = new long[NUMBER_OF_GAS_TYPES];
+    private final long[] cancellationsTooExpensive = new long[NUMBER_OF_GAS_TYPES];
+
+    private long numberOfRecords;
+
+    /**
+     * @return an independent copy of this state
+     */
+    StationState copy() {
+
+        StationState copy = new StationState();
+
+        copy.pumpGasTypes.putAll(pumpGasTypes);
+        copy.pumpMilliliters.putAll(pumpMilliliters);
+        copy.nextPumpId = nextPumpId;
+        copy.numberOfRecords = numberOfRecords;
+
+        System.arraycopy(microEurosPerLiter, 0, copy.microEurosPerLiter, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(priceVersions, 0, copy.priceVersions, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(fuelTanks, 0, copy.fuelTanks, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(fuelTankCapacities, 0, copy.fuelTankCapacities, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(fuelTankMilliliters, 0, copy.fuelTankMilliliters, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(millilitersSold, 0, copy.millilitersSold, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(microEurosEarned, 0, copy.microEurosEarned, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(numberOfSales, 0, copy.numberOfSales, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(cancellationsNoGas, 0, copy.cancellationsNoGas, 0, NUMBER_OF_GAS_TYPES);
+        System.arraycopy(cancellationsTooExpensive, 0, copy.cancellationsTooExpensive, 0, NUMBER_OF_GAS_TYPES);
+
+        return copy;
+    }
+
+    void writeTo(DataOutput output) throws IOException {
+
+        output.writeInt(SNAPSHOT_MAGIC);
+        output.writeInt(SNAPSHOT_FORMAT);
+        output.writeLong(numberOfRecords);
+        output.writeLong(nextPumpId);
+
+        output.writeInt(NUMBER_OF_GAS_TYPES);
+        for (int i = 0; i < NUMBER_OF_GAS_TYPES; i++) {
+            output.writeLong(microEurosPerLiter[i]);
+            output.writeLong(priceVersions[i]);
+            output.writeLong(millilitersSold[i]);
+            output.writeLong(microEurosEarned[i]);
+            output.writeLong(numberOfSales[i]);
+            output.writeLong(cancellationsNoGas[i]);
+            output.writeLong(cancellationsTooExpensive[i]);
+            output.writeBoolean(fuelTanks[i]);
+            output.writeLong(fuelTankCapacities[i]);
+            output.writeLong(fuelTankMilliliters[i]);
+        }
+
+        output.writeInt(pumpGasTypes.size());
+        for (Map.Entry<Long, GasType> pump : pumpGasTypes.entrySet()) {
+            output.writeLong(pump.getKey());
+            output.writeByte(pump.getValue().ordinal());
+            output.writeLong(pumpMilliliters.get(pump.getKey()));
+        }
+    }
+
+    static StationState readFrom(DataInput input) throws IOException {
+
+        if (input.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a gas station snapshot");
+        }
+
+        int format = input.readInt();
+        if (format != SNAPSHOT_FORMAT) {
+            throw new IOException("Unknown gas station snapshot format " + format);
+        }
+
+        StationState state = new StationState();
+        state.numberOfRecords = input.readLong();
+        state.nextPumpId = input.readLong();
+
+        if (input.readInt() != NUMBER_OF_GAS_TYPES) {
+            throw new IOException("The snapshot was taken with other gas types");
+        }
+        for (int i = 0; i < NUMBER_OF_GAS_TYPES; i++) {
+            state.microEurosPerLiter[i] = input.readLong();
+            state.priceVersions[i] = input.readLong();
+            state.millilitersSold[i] = input.readLong();
+            state.microEurosEarned[i] = input.readLong();
+            state.numberOfSales[i] = input.readLong();
+            state.cancellationsNoGas[i] = input.readLong();
+            state.cancellationsTooExpensive[i] = input.readLong();
+            state.fuelTanks[i] = input.readBoolean();
+            state.fuelTankCapacities[i] = input.readLong();
+            state.fuelTankMilliliters[i] = input.readLong();
+        }
+
+        GasType[] gasTypes = GasType.values();
+        int numberOfPumps = input.readInt();
+        for (int i = 0; i < numberOfPumps; i++) {
+            long pumpId = input.readLong();
+            state.pumpGasTypes.put(pumpId, gasTypes[input.readByte()]);
+            state.pumpMilliliters.put(pumpId, input.readLong());
+        }
+
+        return state;
+    }
+
+    /**
+     * Applies one journal record. A price is only taken if it belongs to a later version of the prices than the one
+     * already taken for its gas type, as prices changed at the same time can be journaled out of order.
+     */
+    void apply(byte kind, GasType gasType, long first, long second) {
+
+        switch (kind) {
+        case JournalRecord.PUMP_ADDED:
+            pumpGasTypes.put(first, gasType);
+            pumpMilliliters.put(first, second);
+            nextPumpId = Math.max(nextPumpId, first + 1);
+            break;
+        case JournalRecord.PUMP_REMOVED:
+            pumpGasTypes.remove(first);
+            pumpMilliliters.remove(first);
+            break;
+        case JournalRecord.PRICE_CHANGED:
+            if (second > priceVersions[gasType.ordinal()]) {
+                microEurosPerLiter[gasType.ordinal()] = first;
+                priceVersions[gasType.ordinal()] = second;
+            }
+            break;
+        case JournalRecord.GAS_PUMPED:
+            Long milliliters = pumpMilliliters.get(first);
+            if (milliliters != null) {
+                pumpMilliliters.put(first, milliliters - second);
+            }
+            break;
+        case JournalRecord.FUEL_TANK_ADDED:
+            fuelTanks[gasType.ordinal()] = true;
+            fuelTankCapacities[gasType.ordinal()] = first;
+            fuelTankMilliliters[gasType.ordinal()] = second;
+            break;
+        case JournalRecord.FUEL_DRAWN:
+            fuelTankMilliliters[gasType.ordinal()] -= first;
+            break;
+        case JournalRecord.FUEL_DELIVERED:
+            fuelTankMilliliters[gasType.ordinal()] += first;
+            break;
+        case JournalRecord.SALE:
+            millilitersSold[gasType.ordinal()] += first;
+            microEurosEarned[gasType.ordinal()] += second;
+            numberOfSales[gasType.ordinal()]++;
+            break;
+        case JournalRecord.CANCELLATION_NO_GAS:
+            cancellationsNoGas[gasType.ordinal()]++;
+            break;
+        case JournalRecord.CANCELLATION_TOO_EXPENSIVE:
+            cancellationsTooExpensive[gasType.ordinal()]++;
+            break;
+        default:
+            throw new IllegalStateException("Unknown journal record kind " + kind);
+        }
+
+        numberOfRecords++;
+    }
+
+    /**
+     * @return the ids of the pumps in service, in the order they were added
+     */
+    public Collection<Long> getPumpIds() {
+        return Collections.unmodifiableCollection(pumpGasTypes.keySet());
+    }
+
+    public GasType getPumpGasType(long pumpId) {
+        return pumpGasTypes.get(pumpId);
+    }
+
+    public long getPumpMilliliters(long pumpId) {
+        return pumpMilliliters.get(pumpId);
+    }
+
+    /**
+     * @return the id the next pump added will get
+     */
+    public long getNextPumpId() {
+        return nextPumpId;
+    }
+
+    /**
+     * @return true if the pumps of the given gas type are fed by a tank
+     */
+    public boolean hasFuelTank(GasType type) {
+        return fuelTanks[type.ordinal()];
+    }
+
+    public long getFuelTankCapacity(GasType type) {
+        return fuelTankCapacities[type.ordinal()];
+    }
+
+    public long getFuelTankMilliliters(GasType type) {
+        return fuelTankMilliliters[type.ordinal()];
+    }
+
+    public long getMicroEurosPerLiter(GasType type) {
+        return microEurosPerLiter[type.ordinal()];
+    }
+
+    /**
+     * @return the version of the prices the price of the given gas type was taken from, zero if it was never set
+     */
+    public long getPriceVersion(GasType type) {
+        return priceVersions[type.ordinal()];
+    }
+
+    /**
+     * @return the latest version of the prices journaled for any gas type
+     */
+    public long getLatestPriceVersion() {
+
+        long latest = 0L;
+        for (long version : priceVersions) {
+            latest = Math.max(latest, version);
+        }
+        return latest;
+    }
+
+    public long getMillilitersSold(GasType type) {
+        return millilitersSold[type.ordinal()];
+    }
+
+    public long getMicroEurosEarned(GasType type) {
+        return microEurosEarned[type.ordinal()];
+    }
+
+    public long getNumberOfSales(GasType type) {
+        return numberOfSales[type.ordinal()];
+    }
+
+    public long getNumberOfCancellationsNoGas(GasType type) {
+        return cancellationsNoGas[type.ordinal()];
+    }
+
+    public long getNumberOfCancellationsTooExpensive(GasType type) {
+        return cancellationsTooExpensive[type.ordinal()];
+    }
+
+    /**
+     * @return the number of journal records this state has been rebuilt from, including those behind its snapshot
+     */
+    public long getNumberOfRecords() {
+        return numberOfRecords;
+    }
+
+}
@@ -0,0 +1,288 @@
+package net.bigpoint.assessment.gasstation.logging;
+
+import java.io.Closeable;
+import java.text.MessageFormat;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import net.bigpoint.assessment.gasstation.GasType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * This class writes log lines on a thread of its own, so that the threads recording them never format a message nor
+ * wait for the console or a log appender.
+ *
+ * Events are recorded into a ring of preallocated slots: a thread claims the next sequence number with a
+ * compare-and-set, copies the values of the event into its slot and publishes the slot by writing the sequence number
+ * next to it. Recording neither locks nor allocates. A single writer thread takes the slots in order, formats their
+ * lines and gives them to their logger and, if enabled, to the console.
+ *
+ * When the ring is full the event is dropped and counted rather than making the recording thread wait for the writer.
+ * A thread that finds the log closed once it has claimed its slot drops its event as well, but still publishes the slot
+ * empty: close() may have happened just before the claim, and the writer skips the slot instead of waiting for it.
+ * An event whose logger fails is counted as well, and the failure is reported to the logger of this class.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class EventLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLog.class);
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final EventLog DEFAULT = new EventLog(DEFAULT_CAPACITY);
+
+    // how long the writer sleeps when there is nothing to write
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Slot[] slots;
+    private final int mask;
+
+    // the sequence number of the event each slot holds, published after the slot is filled
+    private final AtomicLongArray publishedSequences;
+
+    private final AtomicLong claimedSequence = new AtomicLong();
+    private final AtomicLong writtenSequence = new AtomicLong();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder failedEvents = new LongAdder();
+
+    // empty slots the writer skipped, only written by the writer
+    private volatile long skippedEvents;
+
+    private volatile boolean consoleOutputEnabled = true;
+    private volatile boolean closed;
+    private final Thread writer;
+
+    // owned by the writer thread, as MessageFormat is not thread safe
+    private final Map<LogEvent, MessageFormat> formats = new EnumMap<LogEvent, MessageFormat>(LogEvent.class);
+    private final Object[] arguments = new Object[4];
+
+    /**
+     * @param capacity
+     *            how many events can wait to be written, a power of two
+     */
+    public EventLog(int capacity) {
+
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two: " + capacity);
+        }
+
+        slots = new Slot[capacity];
+        publishedSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            publishedSequences.set(i, -1L);
+        }
+        mask = capacity - 1;
+
+        writer = new Thread(this::writeEvents, "gas-station-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return the event log shared by the users and the reports of the simulation
+     */
+    public static EventLog getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean record(Logger logger, LogEvent event) {
+        return record(logger, event, null, null, 0.0d, 0.0d);
+    }
+
+    public boolean record(Logger logger, LogEvent event, String name, GasType gasType) {
+        return record(logger, event, name, gasType, 0.0d, 0.0d);
+    }
+
+    public boolean record(Logger logger, LogEvent event, GasType gasType, double number) {
+        return record(logger, event, null, gasType, number, 0.0d);
+    }
+
+    /**
+     * Records an event to be written to the given logger. The arguments are those of the pattern of the event.
+     *
+     * @return false if the event was dropped because the log is full or closed
+     */
+    public boolean record(Logger logger, LogEvent event, String name, GasType gasType, double firstNumber,
+            double secondNumber) {
+
+        if (closed) {
+            droppedEvents.increment();
+            return false;
+        }
+
+        long sequence;
+        do {
+            sequence = claimedSequence.get();
+            if (sequence - writtenSequence.get() >= slots.length) {
+                droppedEvents.increment();
+                return false;
+            }
+        } while (!claimedSequence.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        Slot slot = slots[index];
+
+        // the log may have been closed after the check above, and then it is too late to know whether the writer still
+        // waits for this slot
+        if (closed) {
+            slot.event = null;
+            publishedSequences.set(index, sequence);
+            droppedEvents.increment();
+            return false;
+        }
+
+        slot.logger = logger;
+        slot.event = event;
+        slot.name = name;
+        slot.gasType = gasType;
+        slot.firstNumber = firstNumber;
+        slot.secondNumber = secondNumber;
+        publishedSequences.set(index, sequence);
+
+        return true;
+    }
+
+    /**
+     * Waits until every event recorded so far has been written.
+     */
+    public void flush() {
+
+        long target = claimedSequence.get();
+
+        while (writtenSequence.get() < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, IDLE_NANOS / 10);
+        }
+    }
+
+    /**
+     * Writes the events recorded so far and stops the writer. Events recorded afterwards are dropped.
+     */
+    @Override
+    public void close() {
+
+        closed = true;
+        LockSupport.unpark(writer);
+
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isConsoleOutputEnabled() {
+        return consoleOutputEnabled;
+    }
+
+    /**
+     * Chooses whether lines are also printed to System.out, besides their logger.
+     */
+    public void setConsoleOutputEnabled(boolean consoleOutputEnabled) {
+        this.consoleOutputEnabled = consoleOutputEnabled;
+    }
+
+    public long getNumberOfWrittenEvents() {
+        return writtenSequence.get() - skippedEvents;
+    }
+
+    public long getNumberOfDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * @return the number of events whose logger failed to write them
+     */
+    public long getNumberOfFailedEvents() {
+        return failedEvents.sum();
+    }
+
+    private void writeEvents() {
+
+        long sequence = 0;
+
+        while (!closed || sequence < claimedSequence.get()) {
+
+            int index = (int) sequence & mask;
+            if (publishedSequences.get(index) != sequence) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+                continue;
+            }
+
+            Slot slot = slots[index];
+            if (slot.event == null) {
+                skippedEvents++;
+            } else {
+                try {
+                    write(slot);
+                } catch (RuntimeException e) {
+                    // a failing appender loses its line, not the lines after it
+                    failedEvents.increment();
+                    logger.error("The event {} could not be written", slot.event, e);
+                }
+            }
+
+            slot.logger = null;
+            slot.event = null;
+            slot.name = null;
+            writtenSequence.set(++sequence);
+        }
+    }
+
+    private void write(Slot slot) {
+
+        MessageFormat format = formats.get(slot.event);
+        if (format == null) {
+            format = new MessageFormat(slot.event.getPattern());
+            formats.put(slot.event, format);
+        }
+
+        arguments[0] = slot.name;
+        arguments[1] = slot.gasType;
+        arguments[2] = slot.firstNumber;
+        arguments[3] = slot.secondNumber;
+        String line = format.format(arguments);
+
+        if (consoleOutputEnabled) {
+            System.out.println(line + slot.event.getConsoleSuffix());
+        }
+
+        // blank lines only lay out the console
+        if (!line.isEmpty()) {
+            slot.logger.info(line);
+        }
+    }
+
+    /**
+     * The values of one event, reused every time the ring wraps around.
+     */
+    private static final class Slot {
+
+        private Logger logger;
+        private LogEvent event;
+        private String name;
+        private GasType gasType;
+        private double firstNumber;
+        private double secondNumber;
+
+    }
+
+}
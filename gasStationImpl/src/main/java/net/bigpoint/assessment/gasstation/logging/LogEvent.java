@@ -0,0 +1,61 @@
+package net.bigpoint.assessment.gasstation.logging;
+
+/**
+ *
+ * This enumeration lists the lines the gas station simulation writes, as MessageFormat patterns.
+ *
+ * Every pattern takes the same arguments: {0} is a name, {1} a gas type, and {2} and {3} are numbers. An event records
+ * only those values, and its line is formatted once it is written.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public enum LogEvent {
+
+    FILLING_UP("{0}: Trying to fill some gas up. I need {2} liters of {1} and I will pay {3} euros max."),
+    GAS_TOO_EXPENSIVE("{0}: Oops, {1} gas is too expensive on this gas station."),
+    NOT_ENOUGH_GAS("{0}: Oops, there is no enough {1} gas on this gas station."),
+    NO_GAS_STATION("{0}: Oops, no gas station here, we are in the middle of the highway! I will keep looking for one."),
+    FILLED_UP("{0}: Just filled her up now with {2} liters of {1} and paid {3} euros."),
+
+    STATS_PER_GAS_TYPE_HEADER("", "\n"),
+    AMOUNT_SOLD("Sold {2} liters of {1}."),
+    REVENUE("Earned {2} euros for {1}."),
+    SALES("Performed {2} successful sales for {1}."),
+    CANCELLATIONS_NO_GAS("Cancelled {2} sales for {1} due to insufficient gas available."),
+    CANCELLATIONS_TOO_EXPENSIVE("Cancelled {2} sales for {1} due the gas being too expensive.", "\n"),
+
+    TOTALS_HEADER("\nTotals: "),
+    TOTAL_REVENUE("Earned {2} euros in total."),
+    TOTAL_SALES("Performed {2} successful sales."),
+    TOTAL_CANCELLATIONS_NO_GAS("Cancelled {2} sales due to insufficient gas available."),
+    TOTAL_CANCELLATIONS_TOO_EXPENSIVE("Cancelled {2} sales due to insufficient gas available."),
+
+    PUMPS_HEADER("\nStatus of the Pumps:"),
+    PUMP_STATUS("Gas pump serving {1}. {2} liters of gas remaining.");
+
+    private final String pattern;
+    private final String consoleSuffix;
+
+    private LogEvent(String pattern) {
+        this(pattern, "");
+    }
+
+    /**
+     * @param consoleSuffix
+     *            appended to the line only when it is written to the console, to lay out the output
+     */
+    private LogEvent(String pattern, String consoleSuffix) {
+        this.pattern = pattern;
+        this.consoleSuffix = consoleSuffix;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public String getConsoleSuffix() {
+        return consoleSuffix;
+    }
+
+}
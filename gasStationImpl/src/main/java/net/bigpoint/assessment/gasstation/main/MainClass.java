@@ -1,11 +1,10 @@
 package net.bigpoint.assessment.gasstation.main;
 
-import java.util.concurrent.CyclicBarrier;
-
 import net.bigpoint.assessment.gasstation.GasPump;
 import net.bigpoint.assessment.gasstation.GasStation;
 import net.bigpoint.assessment.gasstation.GasType;
 import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.simulation.CustomerSimulation;
 import net.bigpoint.assessment.gasstation.utils.GasStationUtils;
 
 import org.slf4j.Logger;
@@ -20,8 +19,6 @@ import org.slf4j.LoggerFactory;
  */
 public class MainClass {
 
-    private static final int NUMBER_OF_USERS = 3;
-
     public static void main(String[] args) throws Exception {
 
         Logger logger = LoggerFactory.getLogger(MainClass.class);
@@ -48,22 +45,20 @@ public class MainClass {
         // pumps status before
         GasStationUtils.showPumpsStatus(gasStation);
 
-        final CyclicBarrier gate = new CyclicBarrier(4); // make the threads start at unison using a barrier gate
+        CustomerSimulation simulation = new CustomerSimulation(gasStation);
 
-        message = "Setting cyclic barrier to 4, three users and main threads.";
-        logger.debug(message);
+        simulation.addCustomer("Ralph", 30d, 1.4d, GasType.DIESEL);
+        simulation.addCustomer("Mary", 40d, 1.48d, GasType.DIESEL);
+        simulation.addCustomer("John", 30d, 1.60d, GasType.DIESEL);
 
-        GasStationUtils.createAndActivateUser(gasStation, gate, "Ralph", 30d, 1.4d, GasType.DIESEL);
-        GasStationUtils.createAndActivateUser(gasStation, gate, "Mary", 40d, 1.48d, GasType.DIESEL);
-        GasStationUtils.createAndActivateUser(gasStation, gate, "John", 30d, 1.60d, GasType.DIESEL);
+        message = "Starting three users at once.";
+        logger.debug(message);
 
-        gate.await(); // go!
+        simulation.run(); // go, and wait for everybody to leave
 
-        message = "\nAll threads started\n";
+        message = "\nAll users done\n";
         logger.debug(message);
 
-        Thread.sleep(5000 * NUMBER_OF_USERS);
-
         // stats per gas type
         GasStationUtils.showStatsPerGasType(gasStation);
 
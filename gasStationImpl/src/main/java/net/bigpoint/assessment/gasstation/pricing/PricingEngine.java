@@ -0,0 +1,240 @@
+package net.bigpoint.assessment.gasstation.pricing;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.FixedPoint;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.PriceTable;
+import net.bigpoint.assessment.gasstation.impl.SalesRates;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * This class reprices the gas of many gas stations from their demand and their stock, one small step at a time, on a
+ * thread of its own.
+ *
+ * For every gas type given a price range, a pass reads from each gas station the liters sold and the customers that
+ * found the gas too expensive within the window of its SalesRates, and the gas left in its pumps or tank. The price
+ * goes up when the gas left would not last the target coverage at the current sales rate, and goes down when too many
+ * customers turn the gas down as too expensive or the gas left would last twice the target coverage. A gas type that no
+ * customer tried to buy within the window keeps its price, as there is no demand to go by. Prices never leave their
+ * range.
+ *
+ * Nothing is computed on the sale path: a pass only reads what the gas station already keeps, and publishes the new
+ * prices of all the gas types of a gas station as one new PriceTable (see GasStationImpl.updatePrices(PriceTable,
+ * long[])). If the prices of a gas station were changed by hand during the pass, those win and the gas station is left
+ * alone until the next pass.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class PricingEngine implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingEngine.class);
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    private final List<GasStationImpl> gasStations = new CopyOnWriteArrayList<GasStationImpl>();
+    private final AtomicReferenceArray<PriceRange> priceRanges = new AtomicReferenceArray<PriceRange>(
+            GAS_TYPES.length);
+
+    private final double stepRatio;
+    private final double maxRejectionRatio;
+    private final double targetCoverageMinutes;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final LongAdder repricings = new LongAdder();
+
+    /**
+     * Steps of 2%, up to one customer out of ten turning the gas down, and an hour of gas left as target coverage.
+     */
+    public PricingEngine() {
+        this(0.02d, 0.1d, 1L, TimeUnit.HOURS);
+    }
+
+    /**
+     * @param stepRatio
+     *            how much a price changes in a pass, as a ratio of the price
+     * @param maxRejectionRatio
+     *            the ratio of the customers that may find the gas too expensive before its price goes down
+     * @param targetCoverage
+     *            how long the gas left should last at the current sales rate
+     */
+    public PricingEngine(double stepRatio, double maxRejectionRatio, long targetCoverage, TimeUnit unit) {
+
+        if (stepRatio <= 0.0d || stepRatio >= 1.0d) {
+            throw new IllegalArgumentException("The step must be a ratio between 0 and 1: " + stepRatio);
+        }
+
+        this.stepRatio = stepRatio;
+        this.maxRejectionRatio = maxRejectionRatio;
+        this.targetCoverageMinutes = (double) unit.toNanos(targetCoverage) / TimeUnit.MINUTES.toNanos(1L);
+
+        scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "gas-station-pricing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public void addGasStation(GasStationImpl gasStation) {
+        gasStations.add(gasStation);
+    }
+
+    public boolean removeGasStation(GasStationImpl gasStation) {
+        return gasStations.remove(gasStation);
+    }
+
+    /**
+     * Lets the engine price a gas type, within the given range. Gas types without a range keep the prices set by hand.
+     */
+    public void setPriceRange(GasType type, double minPrice, double maxPrice) {
+
+        if (minPrice < 0.0d || minPrice > maxPrice) {
+            throw new IllegalArgumentException("Not a valid price range: " + minPrice + " to " + maxPrice);
+        }
+
+        priceRanges.set(type.ordinal(),
+                new PriceRange(FixedPoint.toMicroEuros(minPrice), FixedPoint.toMicroEuros(maxPrice)));
+    }
+
+    public void removePriceRange(GasType type) {
+        priceRanges.set(type.ordinal(), null);
+    }
+
+    /**
+     * Reprices every gas station once every period, starting one period from now. A pass that fails is logged and
+     * the next one still runs.
+     */
+    public void scheduleRepricing(long period, TimeUnit unit) {
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                reprice();
+            } catch (RuntimeException e) {
+                // an exception would cancel all the passes after this one without a trace
+                logger.error("A repricing pass failed", e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Reprices every gas station once, on the calling thread.
+     *
+     * @return the number of gas stations whose prices changed
+     */
+    public int reprice() {
+
+        int repriced = 0;
+        for (GasStationImpl gasStation : gasStations) {
+            if (reprice(gasStation)) {
+                repriced++;
+            }
+        }
+
+        repricings.add(repriced);
+        return repriced;
+    }
+
+    private boolean reprice(GasStationImpl gasStation) {
+
+        PriceTable prices = gasStation.getPriceTable();
+        SalesRates salesRates = gasStation.getMetrics().getSalesRates();
+        long[] newPrices = null;
+
+        for (GasType gasType : GAS_TYPES) {
+            PriceRange priceRange = priceRanges.get(gasType.ordinal());
+            if (priceRange == null) {
+                continue;
+            }
+
+            long price = prices.getMicroEurosPerLiter(gasType);
+            long newPrice = priceRange.clamp(Math.round(price * getAdjustment(gasStation, salesRates, gasType)));
+            if (newPrice == price) {
+                continue;
+            }
+
+            // only gas stations with a price to change pay for a new table
+            if (newPrices == null) {
+                newPrices = new long[GAS_TYPES.length];
+                for (GasType type : GAS_TYPES) {
+                    newPrices[type.ordinal()] = prices.getMicroEurosPerLiter(type);
+                }
+            }
+            newPrices[gasType.ordinal()] = newPrice;
+        }
+
+        return newPrices != null && gasStation.updatePrices(prices, newPrices);
+    }
+
+    /**
+     * @return the factor to multiply the price of the given gas type by
+     */
+    private double getAdjustment(GasStationImpl gasStation, SalesRates salesRates, GasType type) {
+
+        long sales = salesRates.getNumberOfSales(type);
+        long rejections = salesRates.getNumberOfCancellationsTooExpensive(type);
+        if (sales + rejections == 0) {
+            return 1.0d;
+        }
+
+        double litersPerMinute = salesRates.getLitersPerMinute(type);
+        double minutesLeft = litersPerMinute > 0.0d ? gasStation.getRemainingAmount(type) / litersPerMinute
+                : Double.POSITIVE_INFINITY;
+
+        // running out comes first, even if customers find the gas too expensive
+        if (minutesLeft < targetCoverageMinutes) {
+            return 1.0d + stepRatio;
+        }
+
+        if (rejections > (sales + rejections) * maxRejectionRatio || minutesLeft > 2.0d * targetCoverageMinutes) {
+            return 1.0d - stepRatio;
+        }
+
+        return 1.0d;
+    }
+
+    /**
+     * @return the number of times the prices of a gas station changed so far
+     */
+    public long getNumberOfRepricings() {
+        return repricings.sum();
+    }
+
+    /**
+     * Stops repricing. Prices stay as they are.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * The prices the engine may choose from for a gas type.
+     */
+    private static final class PriceRange {
+
+        private final long minMicroEuros;
+        private final long maxMicroEuros;
+
+        PriceRange(long minMicroEuros, long maxMicroEuros) {
+            this.minMicroEuros = minMicroEuros;
+            this.maxMicroEuros = maxMicroEuros;
+        }
+
+        long clamp(long microEuros) {
+            return Math.max(minMicroEuros, Math.min(maxMicroEuros, microEuros));
+        }
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package net.bigpoint.assessment.gasstation.registry;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasStation;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
+import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+
+/**
+ *
+ * This class is a view of one gas station hosted by a StationRegistry. It holds nothing but the registry and the id of
+ * the station, so views can be created and thrown away freely; every call goes to the columns of the registry.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class RegisteredGasStation implements GasStation {
+
+    private final StationRegistry registry;
+    private final int stationId;
+
+    RegisteredGasStation(StationRegistry registry, int stationId) {
+        this.registry = registry;
+        this.stationId = stationId;
+    }
+
+    public int getStationId() {
+        return stationId;
+    }
+
+    @Override
+    public void addGasPump(GasPump pump) {
+        registry.addGasPump(stationId, pump);
+    }
+
+    @Override
+    public Collection<GasPump> getGasPumps() {
+        return Collections.unmodifiableList(Arrays.asList(registry.getGasPumps(stationId)));
+    }
+
+    @Override
+    public double buyGas(GasType type, double amountInLiters, double maxPricePerLiter) throws NotEnoughGasException,
+            GasTooExpensiveException {
+        return registry.buyGas(stationId, type, amountInLiters, maxPricePerLiter);
+    }
+
+    @Override
+    public double getAmountSold(GasType type) {
+        return registry.getAmountSold(stationId, type);
+    }
+
+    @Override
+    public double getRevenue() {
+        return registry.getRevenue(stationId);
+    }
+
+    @Override
+    public double getRevenue(GasType type) {
+        return registry.getRevenue(stationId, type);
+    }
+
+    @Override
+    public int getNumberOfSales() {
+        return registry.getNumberOfSales(stationId);
+    }
+
+    @Override
+    public int getNumberOfSales(GasType type) {
+        return registry.getNumberOfSales(stationId, type);
+    }
+
+    @Override
+    public int getNumberOfCancellationsNoGas() {
+        return registry.getNumberOfCancellationsNoGas(stationId);
+    }
+
+    @Override
+    public int getNumberOfCancellationsTooExpensive() {
+        return registry.getNumberOfCancellationsTooExpensive(stationId);
+    }
+
+    @Override
+    public int getNumberOfCancellationsNoGas(GasType type) {
+        return registry.getNumberOfCancellationsNoGas(stationId, type);
+    }
+
+    @Override
+    public int getNumberOfCancellationsTooExpensive(GasType type) {
+        return registry.getNumberOfCancellationsTooExpensive(stationId, type);
+    }
+
+    @Override
+    public double getPrice(GasType type) {
+        return registry.getPrice(stationId, type);
+    }
+
+    @Override
+    public void setPrice(GasType type, double price) {
+        registry.setPrice(stationId, type, price);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RegisteredGasStation)) {
+            return false;
+        }
+        RegisteredGasStation other = (RegisteredGasStation) obj;
+        return registry == other.registry && stationId == other.stationId;
+    }
+
+    @Override
+    public int hashCode() {
+        return stationId;
+    }
+
+}
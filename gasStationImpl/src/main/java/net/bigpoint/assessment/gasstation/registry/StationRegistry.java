@@ -0,0 +1,332 @@
+package net.bigpoint.assessment.gasstation.registry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exception.StacklessGasTooExpensiveException;
+import net.bigpoint.assessment.gasstation.exception.StacklessNotEnoughGasException;
+import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
+import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+import net.bigpoint.assessment.gasstation.impl.FixedPoint;
+import net.bigpoint.assessment.gasstation.impl.GasPumpDriver;
+
+/**
+ * 
+ * This class hosts many gas stations in one process, keeping their state in shared columns instead of an object graph
+ * per station.
+ * 
+ * Every figure is a column of primitives indexed by station id and gas type, or by station id and pump number, so a
+ * station costs a few hundred bytes and a chain-wide total is a single scan of one column. Stations are handed out as
+ * lightweight RegisteredGasStation views implementing GasStation.
+ * 
+ * Columns are atomic arrays: gas is reserved on a pump with a compare-and-set on its column, and figures are added
+ * without locks. Only pumping itself is serialized, on a private lock of the slot the GasPump was added to. The
+ * capacity of the registry is fixed when it is created.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class StationRegistry {
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    private final int maxStations;
+    private final int maxPumpsPerStation;
+    private final GasPumpDriver gasPumpDriver;
+
+    private final AtomicInteger numberOfStations = new AtomicInteger();
+
+    // indexed by station id * number of gas types + gas type ordinal
+    private final AtomicLongArray microEurosPerLiter;
+    private final AtomicLongArray millilitersSold;
+    private final AtomicLongArray microEurosEarned;
+    private final AtomicLongArray numberOfSales;
+    private final AtomicLongArray cancellationsNoGas;
+    private final AtomicLongArray cancellationsTooExpensive;
+
+    // indexed by station id * max pumps per station + pump number
+    private final GasPump[] gasPumps;
+    private final Object[] pumpLocks;
+    private final AtomicLongArray unreservedMilliliters;
+
+    // indexed by station id, published after the pump columns are written
+    private final AtomicIntegerArray numberOfPumps;
+
+    public StationRegistry(int maxStations, int maxPumpsPerStation) {
+        this(maxStations, maxPumpsPerStation, GasPumpDriver.DIRECT);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the columns of a registry of that capacity would not fit in an array
+     */
+    public StationRegistry(int maxStations, int maxPumpsPerStation, GasPumpDriver gasPumpDriver) {
+
+        if (maxStations < 0 || maxPumpsPerStation < 0) {
+            throw new IllegalArgumentException("Not a valid capacity: " + maxStations + " stations of "
+                    + maxPumpsPerStation + " pumps");
+        }
+
+        int figures;
+        int pumps;
+        try {
+            figures = Math.multiplyExact(maxStations, GAS_TYPES.length);
+            pumps = Math.multiplyExact(maxStations, maxPumpsPerStation);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("A registry cannot hold " + maxStations + " stations of "
+                    + maxPumpsPerStation + " pumps");
+        }
+
+        this.maxStations = maxStations;
+        this.maxPumpsPerStation = maxPumpsPerStation;
+        this.gasPumpDriver = gasPumpDriver;
+
+        microEurosPerLiter = new AtomicLongArray(figures);
+        millilitersSold = new AtomicLongArray(figures);
+        microEurosEarned = new AtomicLongArray(figures);
+        numberOfSales = new AtomicLongArray(figures);
+        cancellationsNoGas = new AtomicLongArray(figures);
+        cancellationsTooExpensive = new AtomicLongArray(figures);
+
+        gasPumps = new GasPump[pumps];
+        pumpLocks = new Object[pumps];
+        unreservedMilliliters = new AtomicLongArray(gasPumps.length);
+        numberOfPumps = new AtomicIntegerArray(maxStations);
+    }
+
+    /**
+     * @return a new gas station, without pumps and with every gas type for free
+     */
+    public RegisteredGasStation createStation() {
+
+        int stationId = numberOfStations.getAndIncrement();
+        if (stationId >= maxStations) {
+            numberOfStations.decrementAndGet();
+            throw new IllegalStateException("The registry cannot host more than " + maxStations + " stations");
+        }
+
+        return new RegisteredGasStation(this, stationId);
+    }
+
+    /**
+     * @return a view of a station created before
+     */
+    public RegisteredGasStation getStation(int stationId) {
+        checkStation(stationId);
+        return new RegisteredGasStation(this, stationId);
+    }
+
+    public int getNumberOfStations() {
+        return numberOfStations.get();
+    }
+
+    public int getMaxStations() {
+        return maxStations;
+    }
+
+    public int getMaxPumpsPerStation() {
+        return maxPumpsPerStation;
+    }
+
+    private void checkStation(int stationId) {
+        if (stationId < 0 || stationId >= numberOfStations.get()) {
+            throw new IllegalArgumentException("There is no station " + stationId);
+        }
+    }
+
+    private static int figure(int stationId, GasType type) {
+        return stationId * GAS_TYPES.length + type.ordinal();
+    }
+
+    // operations of single stations, called through RegisteredGasStation
+
+    void addGasPump(int stationId, GasPump pump) {
+
+        // pumps are rarely added, so one lock for all the stations is enough
+        synchronized (gasPumps) {
+
+            int pumpNumber = numberOfPumps.get(stationId);
+            if (pumpNumber >= maxPumpsPerStation) {
+                throw new IllegalStateException("A station cannot have more than " + maxPumpsPerStation + " pumps");
+            }
+
+            int index = stationId * maxPumpsPerStation + pumpNumber;
+            gasPumps[index] = pump;
+            pumpLocks[index] = new Object();
+            unreservedMilliliters.set(index, FixedPoint.toMilliliters(pump.getRemainingAmount()));
+            numberOfPumps.set(stationId, pumpNumber + 1);
+        }
+    }
+
+    GasPump[] getGasPumps(int stationId) {
+
+        GasPump[] stationPumps = new GasPump[numberOfPumps.get(stationId)];
+        System.arraycopy(gasPumps, stationId * maxPumpsPerStation, stationPumps, 0, stationPumps.length);
+        return stationPumps;
+    }
+
+    double buyGas(int stationId, GasType type, double amountInLiters, double maxPricePerLiter)
+            throws NotEnoughGasException, GasTooExpensiveException {
+
+        int figure = figure(stationId, type);
+
+        // the whole sale uses this price, even if it changes meanwhile
+        long price = microEurosPerLiter.get(figure);
+        if (price > FixedPoint.toMicroEuros(maxPricePerLiter)) {
+            cancellationsTooExpensive.incrementAndGet(figure);
+            throw StacklessGasTooExpensiveException.forGasType(type);
+        }
+
+        long milliliters = FixedPoint.toMilliliters(amountInLiters);
+        int pump = reserve(stationId, type, milliliters);
+        if (pump < 0) {
+            cancellationsNoGas.incrementAndGet(figure);
+            throw StacklessNotEnoughGasException.forGasType(type);
+        }
+
+        // never the GasPump itself, which callers may lock on for their own purposes
+        synchronized (pumpLocks[pump]) {
+            gasPumpDriver.pumpGas(gasPumps[pump], amountInLiters);
+        }
+
+        long microEuros = FixedPoint.cost(milliliters, price);
+        millilitersSold.addAndGet(figure, milliliters);
+        microEurosEarned.addAndGet(figure, microEuros);
+        numberOfSales.incrementAndGet(figure);
+
+        return FixedPoint.toEuros(microEuros);
+    }
+
+    /**
+     * Reserves the gas on the first pump of the station that has enough of it.
+     * 
+     * @return the index of the pump in the pump columns, or -1 if no pump has enough gas
+     */
+    private int reserve(int stationId, GasType type, long milliliters) {
+
+        int first = stationId * maxPumpsPerStation;
+        int end = first + numberOfPumps.get(stationId);
+
+        for (int pump = first; pump < end; pump++) {
+
+            if (gasPumps[pump].getGasType() != type) {
+                continue;
+            }
+
+            long unreserved;
+            while ((unreserved = unreservedMilliliters.get(pump)) >= milliliters) {
+                if (unreservedMilliliters.compareAndSet(pump, unreserved, unreserved - milliliters)) {
+                    return pump;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    double getPrice(int stationId, GasType type) {
+        return FixedPoint.toEuros(microEurosPerLiter.get(figure(stationId, type)));
+    }
+
+    void setPrice(int stationId, GasType type, double price) {
+        microEurosPerLiter.set(figure(stationId, type), FixedPoint.toMicroEuros(price));
+    }
+
+    double getAmountSold(int stationId, GasType type) {
+        return FixedPoint.toLiters(millilitersSold.get(figure(stationId, type)));
+    }
+
+    double getRevenue(int stationId) {
+        return FixedPoint.toEuros(sumStation(microEurosEarned, stationId));
+    }
+
+    int getNumberOfSales(int stationId) {
+        return (int) sumStation(numberOfSales, stationId);
+    }
+
+    int getNumberOfCancellationsNoGas(int stationId) {
+        return (int) sumStation(cancellationsNoGas, stationId);
+    }
+
+    int getNumberOfCancellationsTooExpensive(int stationId) {
+        return (int) sumStation(cancellationsTooExpensive, stationId);
+    }
+
+    double getRevenue(int stationId, GasType type) {
+        return FixedPoint.toEuros(microEurosEarned.get(figure(stationId, type)));
+    }
+
+    int getNumberOfSales(int stationId, GasType type) {
+        return (int) numberOfSales.get(figure(stationId, type));
+    }
+
+    int getNumberOfCancellationsNoGas(int stationId, GasType type) {
+        return (int) cancellationsNoGas.get(figure(stationId, type));
+    }
+
+    int getNumberOfCancellationsTooExpensive(int stationId, GasType type) {
+        return (int) cancellationsTooExpensive.get(figure(stationId, type));
+    }
+
+    private static long sumStation(AtomicLongArray column, int stationId) {
+
+        long total = 0;
+        int first = stationId * GAS_TYPES.length;
+
+        for (int i = first; i < first + GAS_TYPES.length; i++) {
+            total += column.get(i);
+        }
+
+        return total;
+    }
+
+    // chain-wide totals, each a single scan of a column
+
+    public double getTotalAmountSold(GasType type) {
+        return FixedPoint.toLiters(sumGasType(millilitersSold, type));
+    }
+
+    public double getTotalRevenue() {
+        return FixedPoint.toEuros(sumAll(microEurosEarned));
+    }
+
+    public long getTotalNumberOfSales() {
+        return sumAll(numberOfSales);
+    }
+
+    public long getTotalNumberOfCancellationsNoGas() {
+        return sumAll(cancellationsNoGas);
+    }
+
+    public long getTotalNumberOfCancellationsTooExpensive() {
+        return sumAll(cancellationsTooExpensive);
+    }
+
+    private long sumAll(AtomicLongArray column) {
+
+        long total = 0;
+        int end = numberOfStations.get() * GAS_TYPES.length;
+
+        for (int i = 0; i < end; i++) {
+            total += column.get(i);
+        }
+
+        return total;
+    }
+
+    private long sumGasType(AtomicLongArray column, GasType type) {
+
+        long total = 0;
+        int end = numberOfStations.get() * GAS_TYPES.length;
+
+        for (int i = type.ordinal(); i < end; i += GAS_TYPES.length) {
+            total += column.get(i);
+        }
+
+        return total;
+    }
+
+}
@@ -0,0 +1,176 @@
+package net.bigpoint.assessment.gasstation.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.StationListener;
+
+/**
+ *
+ * This class adds up the figures of all the gas stations of a chain, for the whole chain and for each of its regions.
+ *
+ * The aggregator listens to every gas station it is given and remembers which ones sold or cancelled anything since
+ * the last refresh. A refresh only takes a snapshot of those stations, in parallel, and replaces what they contributed
+ * before with what they contribute now, so its cost depends on the stations that changed and not on the size of the
+ * chain. A station whose snapshot version did not move contributes nothing.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class ChainAggregator {
+
+    private final Queue<Station> changedStations = new ConcurrentLinkedQueue<Station>();
+
+    // guarded by this
+    private final Map<String, ChainTotals> regionTotals = new TreeMap<String, ChainTotals>();
+    private final ChainTotals chainTotals = new ChainTotals();
+
+    /**
+     * Adds a gas station to the chain. Its figures are added to the totals on the next refresh.
+     */
+    public void addGasStation(String region, GasStationImpl gasStation) {
+
+        Station station = new Station(region, gasStation);
+        gasStation.addStationListener(station);
+        station.changed();
+    }
+
+    /**
+     * Brings the totals up to date with the stations that changed since the last refresh.
+     *
+     * @return the number of stations that had changed
+     */
+    public synchronized int refresh() {
+
+        List<Station> stations = new ArrayList<Station>();
+        Station station;
+        while ((station = changedStations.poll()) != null) {
+            stations.add(station);
+        }
+
+        Map<String, ChainTotals> changes = stations.parallelStream()
+                .filter(Station::takeSnapshot)
+                .collect(Collectors.groupingBy(Station::getRegion, Collector.of(ChainTotals::new,
+                        (totals, changedStation) -> changedStation.addChangesTo(totals), ChainTotals::addAll)));
+
+        for (Map.Entry<String, ChainTotals> change : changes.entrySet()) {
+
+            ChainTotals totals = regionTotals.get(change.getKey());
+            if (totals == null) {
+                totals = new ChainTotals();
+                regionTotals.put(change.getKey(), totals);
+            }
+
+            totals.addAll(change.getValue());
+            chainTotals.addAll(change.getValue());
+        }
+
+        return stations.size();
+    }
+
+    /**
+     * @return the totals of the whole chain as of the last refresh
+     */
+    public synchronized ChainTotals getChainTotals() {
+        return chainTotals.copy();
+    }
+
+    /**
+     * @return the totals of a region as of the last refresh, all zero if the region has no stations
+     */
+    public synchronized ChainTotals getRegionTotals(String region) {
+        ChainTotals totals = regionTotals.get(region);
+        return totals == null ? new ChainTotals() : totals.copy();
+    }
+
+    /**
+     * @return the regions with stations as of the last refresh, in alphabetical order
+     */
+    public synchronized List<String> getRegions() {
+        return new ArrayList<String>(regionTotals.keySet());
+    }
+
+    /**
+     * A gas station of the chain, with the snapshot its figures were last taken from.
+     */
+    private final class Station implements StationListener {
+
+        private final String region;
+        private final GasStationImpl gasStation;
+        private final AtomicBoolean changed = new AtomicBoolean();
+
+        // only touched by refresh
+        private StationSnapshot previousSnapshot;
+        private StationSnapshot snapshot;
+
+        Station(String region, GasStationImpl gasStation) {
+            this.region = region;
+            this.gasStation = gasStation;
+        }
+
+        String getRegion() {
+            return region;
+        }
+
+        void changed() {
+            if (changed.compareAndSet(false, true)) {
+                changedStations.add(this);
+            }
+        }
+
+        /**
+         * @return true if the figures of the station moved since its last snapshot
+         */
+        boolean takeSnapshot() {
+
+            // cleared first: a change after this point queues the station again
+            changed.set(false);
+
+            StationSnapshot newSnapshot = gasStation.getSnapshot();
+            if (snapshot != null && snapshot.getVersion() == newSnapshot.getVersion()) {
+                return false;
+            }
+
+            previousSnapshot = snapshot;
+            snapshot = newSnapshot;
+            return true;
+        }
+
+        void addChangesTo(ChainTotals totals) {
+
+            totals.add(snapshot, 1);
+            if (previousSnapshot == null) {
+                totals.addStations(1);
+            } else {
+                totals.add(previousSnapshot, -1);
+            }
+        }
+
+        @Override
+        public void onSale(GasType type, long milliliters, long microEuros) {
+            changed();
+        }
+
+        @Override
+        public void onCancellationNoGas(GasType type) {
+            changed();
+        }
+
+        @Override
+        public void onCancellationTooExpensive(GasType type) {
+            changed();
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package net.bigpoint.assessment.gasstation.report;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
+import net.bigpoint.assessment.gasstation.impl.FixedPoint;
+
+/**
+ *
+ * This class holds the figures of a group of gas stations added together: the whole chain or one of its regions.
+ *
+ * Figures are kept per gas type in milliliters and micro-euros (see FixedPoint), so adding the figures of a station
+ * and later taking them away again leaves no rounding error behind. Instances handed out by ChainAggregator are copies
+ * that never change.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public final class ChainTotals {
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    private final long[] millilitersOfGasSold = new long[GAS_TYPES.length];
+    private final long[] microEurosEarned = new long[GAS_TYPES.length];
+    private final long[] numberOfSuccessfulSales = new long[GAS_TYPES.length];
+    private final long[] cancellationsNoGas = new long[GAS_TYPES.length];
+    private final long[] cancellationsTooExpensive = new long[GAS_TYPES.length];
+
+    private int numberOfStations;
+
+    ChainTotals() {
+    }
+
+    /**
+     * Adds the figures of a station to these totals, or takes them away if sign is -1.
+     */
+    void add(StationSnapshot snapshot, int sign) {
+
+        for (GasType gasType : GAS_TYPES) {
+            int i = gasType.ordinal();
+            millilitersOfGasSold[i] += sign * FixedPoint.toMilliliters(snapshot.getAmountSold(gasType));
+            microEurosEarned[i] += sign * FixedPoint.toMicroEuros(snapshot.getRevenue(gasType));
+            numberOfSuccessfulSales[i] += sign * snapshot.getNumberOfSales(gasType);
+            cancellationsNoGas[i] += sign * snapshot.getNumberOfCancellationsNoGas(gasType);
+            cancellationsTooExpensive[i] += sign * snapshot.getNumberOfCancellationsTooExpensive(gasType);
+        }
+    }
+
+    void addStations(int stations) {
+        numberOfStations += stations;
+    }
+
+    /**
+     * Adds other totals to these, as the combining step of a reduction.
+     */
+    ChainTotals addAll(ChainTotals other) {
+
+        for (int i = 0; i < GAS_TYPES.length; i++) {
+            millilitersOfGasSold[i] += other.millilitersOfGasSold[i];
+            microEurosEarned[i] += other.microEurosEarned[i];
+            numberOfSuccessfulSales[i] += other.numberOfSuccessfulSales[i];
+            cancellationsNoGas[i] += other.cancellationsNoGas[i];
+            cancellationsTooExpensive[i] += other.cancellationsTooExpensive[i];
+        }
+        numberOfStations += other.numberOfStations;
+
+        return this;
+    }
+
+    ChainTotals copy() {
+        return new ChainTotals().addAll(this);
+    }
+
+    public int getNumberOfStations() {
+        return numberOfStations;
+    }
+
+    public double getAmountSold(GasType type) {
+        return FixedPoint.toLiters(millilitersOfGasSold[type.ordinal()]);
+    }
+
+    public double getRevenue() {
+        return FixedPoint.toEuros(sum(microEurosEarned));
+    }
+
+    public double getRevenue(GasType type) {
+        return FixedPoint.toEuros(microEurosEarned[type.ordinal()]);
+    }
+
+    public long getNumberOfSales() {
+        return sum(numberOfSuccessfulSales);
+    }
+
+    public long getNumberOfSales(GasType type) {
+        return numberOfSuccessfulSales[type.ordinal()];
+    }
+
+    public long getNumberOfCancellationsNoGas() {
+        return sum(cancellationsNoGas);
+    }
+
+    public long getNumberOfCancellationsNoGas(GasType type) {
+        return cancellationsNoGas[type.ordinal()];
+    }
+
+    public long getNumberOfCancellationsTooExpensive() {
+        return sum(cancellationsTooExpensive);
+    }
+
+    public long getNumberOfCancellationsTooExpensive(GasType type) {
+        return cancellationsTooExpensive[type.ordinal()];
+    }
+
+    private static long sum(long[] figures) {
+
+        long total = 0;
+        for (long figure : figures) {
+            total += figure;
+        }
+
+        return total;
+    }
+
+}
@@ -0,0 +1,249 @@
+package net.bigpoint.assessment.gasstation.simulation;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import net.bigpoint.assessment.gasstation.GasStation;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.utils.GasStationUtils;
+import net.bigpoint.assessment.gasstation.utils.User;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * This class simulates customers arriving at a gas station, to load test a station configuration.
+ *
+ * Besides scripted users, the simulation generates random customers following a fuel mix, a range of amounts and a
+ * range of price tolerances, arriving all at once or as a Poisson process with a given rate. Every customer runs on a
+ * virtual thread when the JVM offers them, or on a bounded pool of platform threads otherwise. run() returns once every
+ * customer is done.
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class CustomerSimulation {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSimulation.class);
+
+    private final GasStation gasStation;
+
+    private final List<User> scriptedCustomers = new ArrayList<User>();
+
+    private int numberOfRandomCustomers = 0;
+    private double arrivalsPerSecond = 0.0d; // everybody at once
+    private final Map<GasType, Double> fuelMix = new EnumMap<GasType, Double>(GasType.class);
+    private double minLitersNeeded = 5d;
+    private double maxLitersNeeded = 60d;
+    private double minMaxMoneyPerLiter = 1.2d;
+    private double maxMaxMoneyPerLiter = 1.8d;
+    private int maxConcurrentCustomers = 200; // only used without virtual threads
+    private long seed = System.nanoTime();
+
+    public CustomerSimulation(GasStation gasStation) {
+
+        this.gasStation = gasStation;
+
+        for (GasType gasType : GasType.values()) {
+            fuelMix.put(gasType, 1d);
+        }
+    }
+
+    /**
+     * Adds a scripted customer. Scripted customers arrive before the random ones.
+     */
+    public void addCustomer(String userName, double gasNeeded, double maxMoneyPerLiter, GasType gasType) {
+        scriptedCustomers.add(GasStationUtils.createUser(gasStation, null, userName, gasNeeded, maxMoneyPerLiter,
+                gasType));
+    }
+
+    /**
+     * Runs the simulation and waits until every customer has left the gas station.
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long run() throws InterruptedException {
+
+        Random random = new Random(seed);
+        ExecutorService customers = newCustomerExecutor();
+
+        long start = System.nanoTime();
+        long nextArrival = start;
+
+        try {
+            for (User user : scriptedCustomers) {
+                customers.execute(user);
+            }
+
+            for (int i = 0; i < numberOfRandomCustomers; i++) {
+
+                if (arrivalsPerSecond > 0.0d) {
+                    // exponential inter-arrival times, scheduled on absolute deadlines so that errors do not add up
+                    nextArrival += (long) (-Math.log(1.0d - random.nextDouble()) / arrivalsPerSecond * 1.0e9d);
+                    waitUntil(nextArrival);
+                }
+
+                customers.execute(createRandomCustomer(i, random));
+            }
+        } finally {
+            customers.shutdown();
+        }
+
+        customers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.debug("Simulated {} customers in {} ms.", scriptedCustomers.size() + numberOfRandomCustomers,
+                elapsedMillis);
+
+        return elapsedMillis;
+    }
+
+    private User createRandomCustomer(int number, Random random) {
+
+        double gasNeeded = between(minLitersNeeded, maxLitersNeeded, random);
+        double maxMoneyPerLiter = between(minMaxMoneyPerLiter, maxMaxMoneyPerLiter, random);
+
+        return GasStationUtils.createUser(gasStation, null, "Customer " + number, gasNeeded, maxMoneyPerLiter,
+                pickGasType(random));
+    }
+
+    private GasType pickGasType(Random random) {
+
+        double total = 0.0d;
+        for (double weight : fuelMix.values()) {
+            total += weight;
+        }
+
+        double pick = random.nextDouble() * total;
+        GasType gasType = null;
+
+        for (Map.Entry<GasType, Double> entry : fuelMix.entrySet()) {
+            if (entry.getValue() > 0.0d) {
+                gasType = entry.getKey();
+                pick -= entry.getValue();
+                if (pick < 0.0d) {
+                    break;
+                }
+            }
+        }
+
+        return gasType;
+    }
+
+    private static double between(double min, double max, Random random) {
+        return min + (max - min) * random.nextDouble();
+    }
+
+    private static void waitUntil(long deadline) throws InterruptedException {
+
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private ExecutorService newCustomerExecutor() {
+
+        try {
+            // looked up by reflection so that the simulation still runs on JVMs without virtual threads
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrentCustomers);
+        }
+    }
+
+    public GasStation getGasStation() {
+        return gasStation;
+    }
+
+    public int getNumberOfRandomCustomers() {
+        return numberOfRandomCustomers;
+    }
+
+    public void setNumberOfRandomCustomers(int numberOfRandomCustomers) {
+        this.numberOfRandomCustomers = numberOfRandomCustomers;
+    }
+
+    public double getArrivalsPerSecond() {
+        return arrivalsPerSecond;
+    }
+
+    /**
+     * @param arrivalsPerSecond
+     *            the mean arrival rate of random customers, or zero to let all of them arrive at once
+     */
+    public void setArrivalsPerSecond(double arrivalsPerSecond) {
+        this.arrivalsPerSecond = arrivalsPerSecond;
+    }
+
+    /**
+     * Sets the relative weight of a gas type among random customers. All gas types weigh 1 by default.
+     *
+     * @throws IllegalArgumentException
+     *             if the weight is negative, or if it would leave every gas type weighing 0
+     */
+    public void setFuelMix(GasType gasType, double weight) {
+
+        if (!(weight >= 0.0d)) {
+            throw new IllegalArgumentException("The weight of a gas type cannot be negative: " + weight);
+        }
+
+        double total = weight;
+        for (Map.Entry<GasType, Double> entry : fuelMix.entrySet()) {
+            if (entry.getKey() != gasType) {
+                total += entry.getValue();
+            }
+        }
+
+        // random customers would have no gas type to pick
+        if (total <= 0.0d) {
+            throw new IllegalArgumentException("At least one gas type must weigh more than 0");
+        }
+
+        fuelMix.put(gasType, weight);
+    }
+
+    public double getFuelMix(GasType gasType) {
+        return fuelMix.get(gasType);
+    }
+
+    public void setLitersNeeded(double minLitersNeeded, double maxLitersNeeded) {
+        this.minLitersNeeded = minLitersNeeded;
+        this.maxLitersNeeded = maxLitersNeeded;
+    }
+
+    public void setMaxMoneyPerLiter(double minMaxMoneyPerLiter, double maxMaxMoneyPerLiter) {
+        this.minMaxMoneyPerLiter = minMaxMoneyPerLiter;
+        this.maxMaxMoneyPerLiter = maxMaxMoneyPerLiter;
+    }
+
+    public int getMaxConcurrentCustomers() {
+        return maxConcurrentCustomers;
+    }
+
+    public void setMaxConcurrentCustomers(int maxConcurrentCustomers) {
+        this.maxConcurrentCustomers = maxConcurrentCustomers;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+}
@@ -1,11 +1,14 @@
 package net.bigpoint.assessment.gasstation.utils;
 
-import java.text.MessageFormat;
 import java.util.concurrent.CyclicBarrier;
 
 import net.bigpoint.assessment.gasstation.GasPump;
 import net.bigpoint.assessment.gasstation.GasStation;
 import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.ExtendedGasStation;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
+import net.bigpoint.assessment.gasstation.logging.EventLog;
+import net.bigpoint.assessment.gasstation.logging.LogEvent;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,78 +26,115 @@ public class GasStationUtils {
 
     public static void showStatsPerGasType(GasStation gasStation) {
 
-        String message = "";
+        if (gasStation instanceof ExtendedGasStation) {
+            showStatsPerGasType(((ExtendedGasStation) gasStation).getSnapshot());
+            return;
+        }
 
-        System.out.println("\n");
+        EventLog.getDefault().record(logger, LogEvent.STATS_PER_GAS_TYPE_HEADER);
         for (GasType gasType : GasType.values()) {
+            showStatsForGasType(gasType, gasStation.getAmountSold(gasType), gasStation.getRevenue(gasType),
+                    gasStation.getNumberOfSales(gasType), gasStation.getNumberOfCancellationsNoGas(gasType),
+                    gasStation.getNumberOfCancellationsTooExpensive(gasType));
+        }
+        EventLog.getDefault().flush();
+    }
 
-            message = MessageFormat.format("Sold {0} liters of {1}.", gasStation.getAmountSold(gasType), gasType);
-            System.out.println(message);
-            logger.info(message);
-
-            message = MessageFormat.format("Earned {0} euros for {1}.", gasStation.getRevenue(gasType), gasType);
-            System.out.println(message);
-            logger.info(message);
-
-            message = MessageFormat.format("Performed {0} successful sales for {1}.",
-                    gasStation.getNumberOfSales(gasType), gasType);
-            System.out.println(message);
-            logger.info(message);
-
-            message = MessageFormat.format("Cancelled {0} sales for {1} due to insufficient gas available.",
-                    gasStation.getNumberOfCancellationsNoGas(gasType), gasType);
-            System.out.println(message);
-            logger.info(message);
+    public static void showStatsPerGasType(StationSnapshot snapshot) {
 
-            message = MessageFormat.format("Cancelled {0} sales for {1} due the gas being too expensive.",
-                    gasStation.getNumberOfCancellationsTooExpensive(gasType), gasType);
-            System.out.println(message + "\n");
-            logger.info(message);
+        EventLog.getDefault().record(logger, LogEvent.STATS_PER_GAS_TYPE_HEADER);
+        for (GasType gasType : GasType.values()) {
+            showStatsForGasType(gasType, snapshot.getAmountSold(gasType), snapshot.getRevenue(gasType),
+                    snapshot.getNumberOfSales(gasType), snapshot.getNumberOfCancellationsNoGas(gasType),
+                    snapshot.getNumberOfCancellationsTooExpensive(gasType));
         }
+        EventLog.getDefault().flush();
     }
 
     public static void showStatsTotals(GasStation gasStation) {
 
-        String message = "\nTotals: ";
-        System.out.println(message);
-        logger.info(message);
+        if (gasStation instanceof ExtendedGasStation) {
+            showStatsTotals(((ExtendedGasStation) gasStation).getSnapshot());
+            return;
+        }
 
-        message = MessageFormat.format("Earned {0} euros in total.", gasStation.getRevenue());
-        System.out.println(message);
-        logger.info(message);
+        showStatsTotals(gasStation.getRevenue(), gasStation.getNumberOfSales(),
+                gasStation.getNumberOfCancellationsNoGas(), gasStation.getNumberOfCancellationsTooExpensive());
+    }
 
-        message = MessageFormat.format("Performed {0} successful sales.", gasStation.getNumberOfSales());
-        System.out.println(message);
-        logger.info(message);
+    public static void showStatsTotals(StationSnapshot snapshot) {
 
-        message = MessageFormat.format("Cancelled {0} sales due to insufficient gas available.",
-                gasStation.getNumberOfCancellationsNoGas());
-        System.out.println(message);
-        logger.info(message);
+        showStatsTotals(snapshot.getRevenue(), snapshot.getNumberOfSales(), snapshot.getNumberOfCancellationsNoGas(),
+                snapshot.getNumberOfCancellationsTooExpensive());
+    }
+
+    private static void showStatsForGasType(GasType gasType, double amountSold, double revenue, int numberOfSales,
+            int cancellationsNoGas, int cancellationsTooExpensive) {
+
+        EventLog eventLog = EventLog.getDefault();
+        eventLog.record(logger, LogEvent.AMOUNT_SOLD, gasType, amountSold);
+        eventLog.record(logger, LogEvent.REVENUE, gasType, revenue);
+        eventLog.record(logger, LogEvent.SALES, gasType, numberOfSales);
+        eventLog.record(logger, LogEvent.CANCELLATIONS_NO_GAS, gasType, cancellationsNoGas);
+        eventLog.record(logger, LogEvent.CANCELLATIONS_TOO_EXPENSIVE, gasType, cancellationsTooExpensive);
+    }
 
-        message = MessageFormat.format("Cancelled {0} sales due to insufficient gas available.",
-                gasStation.getNumberOfCancellationsTooExpensive());
-        System.out.println(message);
-        logger.info(message);
+    private static void showStatsTotals(double revenue, int numberOfSales, int cancellationsNoGas,
+            int cancellationsTooExpensive) {
 
+        EventLog eventLog = EventLog.getDefault();
+        eventLog.record(logger, LogEvent.TOTALS_HEADER);
+        eventLog.record(logger, LogEvent.TOTAL_REVENUE, null, revenue);
+        eventLog.record(logger, LogEvent.TOTAL_SALES, null, numberOfSales);
+        eventLog.record(logger, LogEvent.TOTAL_CANCELLATIONS_NO_GAS, null, cancellationsNoGas);
+        eventLog.record(logger, LogEvent.TOTAL_CANCELLATIONS_TOO_EXPENSIVE, null, cancellationsTooExpensive);
+        eventLog.flush();
     }
 
     public static void showPumpsStatus(GasStation gasStation) {
-        String message = "\nStatus of the Pumps:";
-        System.out.println(message);
-        logger.info(message);
+
+        if (gasStation instanceof ExtendedGasStation) {
+            showPumpsStatus(((ExtendedGasStation) gasStation).getSnapshot());
+            return;
+        }
+
+        showPumpsStatusHeader();
 
         for (GasPump gasPump : gasStation.getGasPumps()) {
-            message = MessageFormat.format("Gas pump serving {0}. {1} liters of gas remaining.", gasPump.getGasType(),
-                    gasPump.getRemainingAmount());
-            System.out.println(message);
-            logger.info(message);
+            showPumpStatus(gasPump.getGasType(), gasPump.getRemainingAmount());
+        }
+        EventLog.getDefault().flush();
+    }
+
+    public static void showPumpsStatus(StationSnapshot snapshot) {
 
+        showPumpsStatusHeader();
+
+        for (int i = 0; i < snapshot.getNumberOfPumps(); i++) {
+            showPumpStatus(snapshot.getPumpGasType(i), snapshot.getPumpRemainingAmount(i));
         }
+        EventLog.getDefault().flush();
+    }
+
+    private static void showPumpsStatusHeader() {
+        EventLog.getDefault().record(logger, LogEvent.PUMPS_HEADER);
+    }
+
+    private static void showPumpStatus(GasType gasType, double remainingAmount) {
+        EventLog.getDefault().record(logger, LogEvent.PUMP_STATUS, gasType, remainingAmount);
     }
 
     public static void createAndActivateUser(GasStation gasStation, final CyclicBarrier gate, String userName,
             Double gasNeeded, Double maxMoneyPerLiter, GasType gasType) {
+        User user = createUser(gasStation, gate, userName, gasNeeded, maxMoneyPerLiter, gasType);
+
+        Thread someThread = new Thread(user);
+        someThread.start();
+
+    }
+
+    public static User createUser(GasStation gasStation, final CyclicBarrier gate, String userName, Double gasNeeded,
+            Double maxMoneyPerLiter, GasType gasType) {
         User user = new User();
 
         user.setGasStation(gasStation);
@@ -104,9 +144,7 @@ public class GasStationUtils {
         user.setMaxMoneyPerLiter(maxMoneyPerLiter);
         user.setTypeOfGasNeeded(gasType);
 
-        Thread someThread = new Thread(user);
-        someThread.start();
-
+        return user;
     }
 
     public static Logger getLogger() {
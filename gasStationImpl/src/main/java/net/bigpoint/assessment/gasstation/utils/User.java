@@ -1,6 +1,5 @@
 package net.bigpoint.assessment.gasstation.utils;
 
-import java.text.MessageFormat;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CyclicBarrier;
 
@@ -9,6 +8,8 @@ import net.bigpoint.assessment.gasstation.GasType;
 import net.bigpoint.assessment.gasstation.exception.ThereIsNoGasStationHereException;
 import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
 import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+import net.bigpoint.assessment.gasstation.logging.EventLog;
+import net.bigpoint.assessment.gasstation.logging.LogEvent;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,47 +39,33 @@ public class User implements Runnable {
     @Override
     public void run() {
 
-        try {
-            gate.await();
-        } catch (InterruptedException e1) {
-            e1.printStackTrace();
-        } catch (BrokenBarrierException e1) {
-            e1.printStackTrace();
+        if (gate != null) {
+            try {
+                gate.await();
+            } catch (InterruptedException e1) {
+                e1.printStackTrace();
+            } catch (BrokenBarrierException e1) {
+                e1.printStackTrace();
+            }
         }
 
-        String message = MessageFormat.format(
-                "{0}: Trying to fill some gas up. I need {1} liters of {2} and I will pay {3} euros max.", userName,
-                amountOfGasNeeded, typeOfGasNeeded, maxMoneyPerLiter);
-        System.out.println(message);
-        logger.info(message);
+        EventLog eventLog = EventLog.getDefault();
+        eventLog.record(logger, LogEvent.FILLING_UP, userName, typeOfGasNeeded, amountOfGasNeeded, maxMoneyPerLiter);
 
         try {
             amountOfMoneyToPay = getSomeGas(gasStation, typeOfGasNeeded, amountOfGasNeeded, maxMoneyPerLiter);
         } catch (GasTooExpensiveException e) {
-            message = MessageFormat.format("{0}: Oops, {1} gas is too expensive on this gas station.", userName,
-                    typeOfGasNeeded);
-            System.out.println(message);
-            logger.info(message);
+            eventLog.record(logger, LogEvent.GAS_TOO_EXPENSIVE, userName, typeOfGasNeeded);
             return;
         } catch (NotEnoughGasException e) {
-            message = MessageFormat.format(userName + ": Oops, there is no enough {1} gas on this gas station.",
-                    userName, typeOfGasNeeded);
-            System.out.println(message);
-            logger.info(message);
+            eventLog.record(logger, LogEvent.NOT_ENOUGH_GAS, userName, typeOfGasNeeded);
             return;
         } catch (ThereIsNoGasStationHereException e) {
-            message = MessageFormat
-                    .format("{0}: Oops, no gas station here, we are in the middle of the highway! I will keep looking for one.",
-                            userName);
-            System.out.println(message);
-            logger.info(message);
+            eventLog.record(logger, LogEvent.NO_GAS_STATION, userName, null);
             return;
         }
 
-        message = MessageFormat.format("{0}: Just filled her up now with {1} liters of {2} and paid {3} euros.",
-                userName, amountOfGasNeeded, typeOfGasNeeded, amountOfMoneyToPay);
-        System.out.println(message);
-        logger.info(message);
+        eventLog.record(logger, LogEvent.FILLED_UP, userName, typeOfGasNeeded, amountOfGasNeeded, amountOfMoneyToPay);
     }
 
     private double getSomeGas(GasStation gasStation, GasType type, double amountInLiters, double maxPricePerLiter)
@@ -0,0 +1,186 @@
+package net.bigpoint.assessment.gasstation.delivery.test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.delivery.TankerService;
+import net.bigpoint.assessment.gasstation.impl.FuelTank;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.StationListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * This class contains the unit tests for class TankerService
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class TankerServiceTest {
+
+    private GasStationImpl gasStation;
+    private TankerService tankerService;
+
+    @Before
+    public void setup() {
+
+        gasStation = new GasStationImpl();
+        tankerService = new TankerService(gasStation);
+
+    }
+
+    @After
+    public void tearDown() {
+
+        tankerService.close();
+
+    }
+
+    private double getAmountLeft(GasType type) {
+
+        double amountLeft = 0.0d;
+        for (GasPump gasPump : gasStation.getGasPumps()) {
+            if (gasPump.getGasType() == type) {
+                amountLeft += gasPump.getRemainingAmount();
+            }
+        }
+
+        return amountLeft;
+    }
+
+    private void waitForDeliveries(long deliveries) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (tankerService.getNumberOfDeliveries() < deliveries && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void shouldTopUpEveryPumpOfAGasType() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.addGasPump(new GasPump(GasType.SUPER, 1d));
+        gasStation.setPrice(GasType.DIESEL, 1d);
+
+        // When
+        int toppedUp = tankerService.deliver(GasType.DIESEL, 2d).get();
+
+        // Then
+        Assert.assertEquals(2, toppedUp);
+        Assert.assertEquals(6d, getAmountLeft(GasType.DIESEL));
+        Assert.assertEquals(1d, getAmountLeft(GasType.SUPER));
+        Assert.assertEquals(4d, tankerService.getAmountDelivered(GasType.DIESEL));
+        Assert.assertEquals(2.5d, gasStation.buyGas(GasType.DIESEL, 2.5d, 1d));
+
+    }
+
+    @Test
+    public void shouldSendATankerWhenAPumpFallsBelowTheReorderPoint() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.REGULAR, 1d));
+        tankerService.setReorderPoint(GasType.REGULAR, 0.5d, 2d, 0L, TimeUnit.SECONDS);
+
+        // When
+        gasStation.buyGas(GasType.REGULAR, 0.4d, 1d);
+        long deliveriesAboveTheReorderPoint = tankerService.getNumberOfDeliveries();
+        gasStation.buyGas(GasType.REGULAR, 0.2d, 1d);
+        waitForDeliveries(1L);
+
+        // Then
+        Assert.assertEquals(0L, deliveriesAboveTheReorderPoint);
+        Assert.assertEquals(1L, tankerService.getNumberOfDeliveries());
+        Assert.assertEquals(2.4d, getAmountLeft(GasType.REGULAR), 0.000001d);
+
+    }
+
+    @Test
+    public void shouldDeliverOnASchedule() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.SUPER, 0d));
+
+        // When
+        tankerService.scheduleDeliveries(GasType.SUPER, 1d, 20L, TimeUnit.MILLISECONDS);
+        waitForDeliveries(3L);
+
+        // Then
+        Assert.assertTrue(tankerService.getNumberOfDeliveries() >= 3L);
+        Assert.assertTrue(getAmountLeft(GasType.SUPER) >= 3d);
+
+    }
+
+    @Test
+    public void shouldKeepDeliveringOnAScheduleAfterADeliveryFailed() throws Exception {
+
+        // Given
+        gasStation.addFuelTank(new FuelTank(GasType.DIESEL, 100d, 0d));
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        gasStation.addStationListener(new StationListener() {
+
+            @Override
+            public void onFuelDelivered(GasType type, long milliliters) {
+                if (failed.compareAndSet(false, true)) {
+                    throw new IllegalStateException("tanker broke down");
+                }
+            }
+        });
+
+        // When
+        tankerService.scheduleDeliveries(GasType.DIESEL, 1d, 20L, TimeUnit.MILLISECONDS);
+        waitForDeliveries(2L);
+
+        // Then
+        Assert.assertTrue(failed.get());
+        Assert.assertTrue(tankerService.getNumberOfDeliveries() >= 2L);
+
+    }
+
+    @Test
+    public void shouldFillTheTankInsteadOfThePumpsItFeeds() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.addFuelTank(new FuelTank(GasType.DIESEL, 10d, 1d));
+        tankerService.setReorderPoint(GasType.DIESEL, 0.5d, 20d, 0L, TimeUnit.SECONDS);
+
+        // When
+        gasStation.buyGas(GasType.DIESEL, 0.6d, 1d);
+        waitForDeliveries(1L);
+
+        // Then
+        Assert.assertEquals(1L, tankerService.getNumberOfDeliveries());
+        Assert.assertEquals(10d, gasStation.getFuelTank(GasType.DIESEL).getRemainingAmount());
+        Assert.assertEquals(9.6d, tankerService.getAmountDelivered(GasType.DIESEL), 0.000001d);
+        Assert.assertEquals(1, tankerService.deliver(GasType.DIESEL, 1d).get().intValue());
+
+    }
+
+    @Test
+    public void shouldForecastWhenAGasTypeRunsOut() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 3d));
+
+        // When
+        gasStation.buyGas(GasType.DIESEL, 1d, 1d);
+
+        // Then
+        // one liter sold in the last minute, two left
+        Assert.assertEquals(2L, tankerService.forecastStockOut(GasType.DIESEL, TimeUnit.MINUTES));
+        Assert.assertEquals(Long.MAX_VALUE, tankerService.forecastStockOut(GasType.SUPER, TimeUnit.MINUTES));
+
+    }
+
+}
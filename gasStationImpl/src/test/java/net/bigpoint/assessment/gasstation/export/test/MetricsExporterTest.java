@@ -0,0 +1,195 @@
+package net.bigpoint.assessment.gasstation.export.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.export.MetricsExporter;
+import net.bigpoint.assessment.gasstation.impl.AdmissionPolicy;
+import net.bigpoint.assessment.gasstation.impl.GasPumpDriver;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.PumpSelectionStrategy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * This class contains the unit tests for class MetricsExporter
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class MetricsExporterTest {
+
+    private GasStationImpl gasStation;
+    private MetricsExporter metricsExporter;
+
+    @Before
+    public void setup() throws Exception {
+
+        gasStation = new GasStationImpl();
+        metricsExporter = new MetricsExporter(gasStation, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+    }
+
+    @After
+    public void tearDown() {
+
+        metricsExporter.close();
+
+    }
+
+    private HttpURLConnection connect() throws Exception {
+        InetSocketAddress address = metricsExporter.getAddress();
+        URL url = new URL("http", address.getHostString(), address.getPort(), MetricsExporter.PATH);
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static String read(InputStream in) throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldPublishTheFiguresOfTheGasStation() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 2d));
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+
+        gasStation.buyGas(GasType.DIESEL, 1d, 2d);
+        gasStation.tryBuyGas(GasType.DIESEL, 5d, 2d);
+        gasStation.tryBuyGas(GasType.DIESEL, 1d, 1d);
+
+        // When
+        HttpURLConnection connection = connect();
+        String text = read(connection.getInputStream());
+
+        // Then
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals(MetricsExporter.CONTENT_TYPE, connection.getContentType());
+
+        Assert.assertTrue(text.contains("# TYPE gas_station_sales counter\n"));
+        Assert.assertTrue(text.contains("gas_station_sales_total{gas_type=\"DIESEL\"} 1\n"));
+        Assert.assertTrue(text.contains("gas_station_sales_total{gas_type=\"SUPER\"} 0\n"));
+        Assert.assertTrue(text.contains("gas_station_sold_liters_total{gas_type=\"DIESEL\"} 1.0\n"));
+        Assert.assertTrue(text.contains("gas_station_revenue_euros_total{gas_type=\"DIESEL\"} 1.5\n"));
+        Assert.assertTrue(text.contains("gas_station_cancellations_total{gas_type=\"DIESEL\",reason=\"no_gas\"} 1\n"));
+        Assert.assertTrue(text
+                .contains("gas_station_cancellations_total{gas_type=\"DIESEL\",reason=\"too_expensive\"} 1\n"));
+        Assert.assertTrue(text.contains("gas_station_price_euros{gas_type=\"DIESEL\"} 1.5\n"));
+        Assert.assertTrue(text.contains("gas_station_pump_remaining_liters{pump=\"0\",gas_type=\"DIESEL\"} 1.0\n"));
+
+        Assert.assertTrue(text.contains("# TYPE gas_station_buy_gas_pump_seconds histogram\n"));
+        Assert.assertTrue(text
+                .contains("gas_station_buy_gas_pump_seconds_bucket{gas_type=\"DIESEL\",le=\"+Inf\"} 1\n"));
+        Assert.assertTrue(text.contains("gas_station_buy_gas_pump_seconds_count{gas_type=\"DIESEL\"} 1\n"));
+        Assert.assertTrue(text.contains("gas_station_buy_gas_wait_seconds_count{gas_type=\"SUPER\"} 0\n"));
+        Assert.assertTrue(text.endsWith("# EOF\n"));
+
+    }
+
+    @Test
+    public void shouldCountEveryLatencyInTheBucketsAboveIt() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.SUPER, 1d));
+        gasStation.buyGas(GasType.SUPER, 1d, 1d);
+
+        // When
+        String text = metricsExporter.scrape();
+
+        // Then
+        // pumping a liter takes about 0.1 seconds, between 2^26 and 2^27 nanoseconds
+        Assert.assertTrue(text.contains(
+                "gas_station_buy_gas_pump_seconds_bucket{gas_type=\"SUPER\",le=\"0.067108863\"} 0\n"));
+        Assert.assertTrue(text.contains(
+                "gas_station_buy_gas_pump_seconds_bucket{gas_type=\"SUPER\",le=\"68.719476735\"} 1\n"));
+
+    }
+
+    @Test
+    public void shouldCountALatencyInTheBucketsWhoseBoundIsAtLeastAsHigh() throws Exception {
+
+        // Given
+        gasStation.getMetrics().getWaitTimes(GasType.REGULAR).record((1L << 20) - 1);
+        gasStation.getMetrics().getWaitTimes(GasType.REGULAR).record(1L << 20);
+
+        // When
+        String text = metricsExporter.scrape();
+
+        // Then
+        // the bound of a bucket is inclusive
+        Assert.assertTrue(text.contains(
+                "gas_station_buy_gas_wait_seconds_bucket{gas_type=\"REGULAR\",le=\"5.24287E-4\"} 0\n"));
+        Assert.assertTrue(text.contains(
+                "gas_station_buy_gas_wait_seconds_bucket{gas_type=\"REGULAR\",le=\"0.001048575\"} 1\n"));
+        Assert.assertTrue(text.contains(
+                "gas_station_buy_gas_wait_seconds_bucket{gas_type=\"REGULAR\",le=\"0.002097151\"} 2\n"));
+
+    }
+
+    @Test
+    public void shouldPublishTheCustomersTurnedAwayFromTheLine() throws Exception {
+
+        // Given
+        GasStationImpl queuedGasStation = new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, GasPumpDriver.DIRECT,
+                new AdmissionPolicy(0, 0, TimeUnit.SECONDS));
+        queuedGasStation.setPrice(GasType.DIESEL, 1d);
+        queuedGasStation.tryBuyGas(GasType.DIESEL, 1d, 1d);
+
+        MetricsExporter queuedMetricsExporter = new MetricsExporter(queuedGasStation, new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), 0));
+
+        // When
+        String text;
+        try {
+            text = queuedMetricsExporter.scrape();
+        } finally {
+            queuedMetricsExporter.close();
+        }
+
+        // Then
+        Assert.assertTrue(text.contains(
+                "gas_station_admission_rejections_total{gas_type=\"DIESEL\",reason=\"queue_full\"} 1\n"));
+        Assert.assertTrue(text.contains(
+                "gas_station_admission_rejections_total{gas_type=\"DIESEL\",reason=\"timed_out\"} 0\n"));
+        Assert.assertTrue(text.contains("gas_station_cancellations_total{gas_type=\"DIESEL\",reason=\"no_gas\"} 0\n"));
+        Assert.assertFalse(metricsExporter.scrape().contains("gas_station_admission_rejections"));
+
+    }
+
+    @Test
+    public void shouldOnlyAnswerToGet() throws Exception {
+
+        // Given
+        HttpURLConnection connection = connect();
+        connection.setRequestMethod("DELETE");
+
+        // When
+        int responseCode = connection.getResponseCode();
+
+        // Then
+        Assert.assertEquals(405, responseCode);
+
+    }
+
+}
@@ -0,0 +1,286 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+import net.bigpoint.assessment.gasstation.extension.FuelOrder;
+import net.bigpoint.assessment.gasstation.extension.PurchaseResult;
+import net.bigpoint.assessment.gasstation.extension.PurchaseStatus;
+import net.bigpoint.assessment.gasstation.impl.AdmissionPolicy;
+import net.bigpoint.assessment.gasstation.impl.AdmissionQueue;
+import net.bigpoint.assessment.gasstation.impl.GasPumpDriver;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.PumpSelectionStrategy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for class AdmissionQueue
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class AdmissionQueueTest {
+
+    private final double amountInLiters = 1d;
+    private final double maxPricePerLiter = 1.5d;
+
+    // customers block while waiting in line, so they do not share the common pool
+    private ExecutorService customers;
+
+    private CountDownLatch pumping;
+    private CountDownLatch pumpReleased;
+
+    // holds the pump of the first customer busy until released by the test
+    private GasPumpDriver slowDriver;
+
+    @Before
+    public void setup() {
+
+        customers = Executors.newCachedThreadPool();
+        pumping = new CountDownLatch(1);
+        pumpReleased = new CountDownLatch(1);
+
+        final AtomicBoolean firstCustomer = new AtomicBoolean(true);
+
+        slowDriver = new GasPumpDriver() {
+
+            public void pumpGas(GasPump gasPump, double amountInLiters) {
+                if (firstCustomer.getAndSet(false)) {
+                    pumping.countDown();
+                    try {
+                        pumpReleased.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                GasPumpDriver.DIRECT.pumpGas(gasPump, amountInLiters);
+            }
+        };
+
+    }
+
+    @After
+    public void tearDown() {
+
+        customers.shutdownNow();
+
+    }
+
+    @Test
+    public void shouldTurnCustomersAwayWhenTheLineIsFull() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = newGasStation(new AdmissionPolicy(1, 10, TimeUnit.SECONDS));
+        AdmissionQueue admissionQueue = gasStation.getAdmissionQueue(GasType.DIESEL);
+
+        // When
+        CompletableFuture<PurchaseResult> firstCustomer = buyInTheBackground(gasStation);
+        pumping.await();
+
+        CompletableFuture<PurchaseResult> secondCustomer = buyInTheBackground(gasStation);
+        while (admissionQueue.getQueueLength() == 0) {
+            Thread.sleep(10);
+        }
+
+        PurchaseResult thirdCustomer = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        pumpReleased.countDown();
+
+        // Then
+        Assert.assertEquals(PurchaseStatus.NO_PUMP_AVAILABLE, thirdCustomer.getStatus());
+        Assert.assertTrue(firstCustomer.get().isSold());
+        Assert.assertTrue(secondCustomer.get().isSold());
+        Assert.assertEquals(0, admissionQueue.getQueueLength());
+        Assert.assertEquals(1, admissionQueue.getMaxQueueLength());
+        Assert.assertEquals(2L, admissionQueue.getNumberOfAdmissions());
+        Assert.assertEquals(1L, admissionQueue.getNumberOfRejectionsQueueFull());
+        Assert.assertEquals(0L, admissionQueue.getNumberOfRejectionsTimedOut());
+
+    }
+
+    @Test
+    public void shouldTurnCustomersAwayAfterWaitingTooLong() throws Exception {
+
+        // Given
+        long timeoutMillis = 200;
+        GasStationImpl gasStation = newGasStation(new AdmissionPolicy(10, timeoutMillis, TimeUnit.MILLISECONDS));
+        AdmissionQueue admissionQueue = gasStation.getAdmissionQueue(GasType.DIESEL);
+
+        // When
+        CompletableFuture<PurchaseResult> firstCustomer = buyInTheBackground(gasStation);
+        pumping.await();
+
+        PurchaseResult secondCustomer = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        pumpReleased.countDown();
+
+        // Then
+        Assert.assertEquals(PurchaseStatus.NO_PUMP_AVAILABLE, secondCustomer.getStatus());
+        Assert.assertTrue(firstCustomer.get().isSold());
+        Assert.assertEquals(1L, admissionQueue.getNumberOfRejectionsTimedOut());
+        Assert.assertTrue(admissionQueue.getTimeWaited(TimeUnit.MILLISECONDS) >= timeoutMillis);
+        Assert.assertEquals(0, gasStation.getNumberOfCancellationsNoGas());
+
+    }
+
+    @Test
+    public void shouldAdmitAsManyCustomersAsThereArePumps() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = newGasStation(new AdmissionPolicy(0, 0, TimeUnit.SECONDS));
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 10d));
+
+        // When
+        CompletableFuture<PurchaseResult> firstCustomer = buyInTheBackground(gasStation);
+        pumping.await();
+
+        PurchaseResult secondCustomer = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        pumpReleased.countDown();
+
+        // Then
+        Assert.assertTrue(firstCustomer.get().isSold());
+        Assert.assertTrue(secondCustomer.isSold());
+        Assert.assertNull(new GasStationImpl().getAdmissionQueue(GasType.DIESEL));
+
+    }
+
+    @Test
+    public void shouldSendAnAdmittedCustomerToTheFreePump() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = newGasStation(PumpSelectionStrategy.FIRST_FIT, new AdmissionPolicy(0, 0,
+                TimeUnit.SECONDS));
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 10d));
+
+        // When
+        CompletableFuture<PurchaseResult> firstCustomer = buyInTheBackground(gasStation);
+        pumping.await();
+
+        // served by the second pump while the first one is still busy
+        PurchaseResult secondCustomer = buyInTheBackground(gasStation).get(5, TimeUnit.SECONDS);
+        pumpReleased.countDown();
+
+        // Then
+        Assert.assertTrue(secondCustomer.isSold());
+        Assert.assertTrue(firstCustomer.get().isSold());
+        Assert.assertEquals(PumpSelectionStrategy.LEAST_BUSY, gasStation.getPumpSelectionStrategy());
+
+    }
+
+    @Test
+    public void shouldNotCountTheCustomersTurnedAwayAsCancellations() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = newGasStation(new AdmissionPolicy(0, 0, TimeUnit.SECONDS));
+        AdmissionQueue admissionQueue = gasStation.getAdmissionQueue(GasType.DIESEL);
+        CompletableFuture<PurchaseResult> firstCustomer = buyInTheBackground(gasStation);
+        pumping.await();
+
+        // When
+        boolean turnedAway = false;
+        try {
+            gasStation.buyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        } catch (NotEnoughGasException e) {
+            turnedAway = true;
+        }
+        PurchaseResult thirdCustomer = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        pumpReleased.countDown();
+
+        // Then
+        Assert.assertTrue(turnedAway);
+        Assert.assertEquals(PurchaseStatus.NO_PUMP_AVAILABLE, thirdCustomer.getStatus());
+        Assert.assertTrue(firstCustomer.get().isSold());
+        Assert.assertEquals(2L, admissionQueue.getNumberOfRejectionsQueueFull());
+        Assert.assertEquals(0, gasStation.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(0L, gasStation.getMetrics().getSalesRates().getNumberOfCancellationsNoGas(GasType.DIESEL));
+
+    }
+
+    @Test
+    public void shouldMakeAsyncCustomersWaitInLineWithTheOthers() throws Exception {
+
+        // Given
+        final GasStationImpl gasStation = newGasStation(new AdmissionPolicy(10, 10, TimeUnit.SECONDS));
+        AdmissionQueue admissionQueue = gasStation.getAdmissionQueue(GasType.DIESEL);
+
+        CompletableFuture<PurchaseResult> firstCustomer = buyInTheBackground(gasStation);
+        pumping.await();
+
+        CompletableFuture<PurchaseResult> secondCustomer = buyInTheBackground(gasStation);
+        while (admissionQueue.getQueueLength() == 0) {
+            Thread.sleep(10);
+        }
+
+        // When
+        CompletableFuture<Double> asyncCustomer = CompletableFuture.supplyAsync(
+                () -> gasStation.buyGasAsync(GasType.DIESEL, amountInLiters, maxPricePerLiter), customers)
+                .thenCompose(purchase -> purchase);
+        while (admissionQueue.getQueueLength() < 2) {
+            Thread.sleep(10);
+        }
+        boolean servedWhileThePumpWasBusy = asyncCustomer.isDone();
+        pumpReleased.countDown();
+
+        // Then
+        Assert.assertFalse(servedWhileThePumpWasBusy);
+        Assert.assertEquals(maxPricePerLiter, asyncCustomer.get(5, TimeUnit.SECONDS).doubleValue());
+        Assert.assertTrue(firstCustomer.get().isSold());
+        Assert.assertTrue(secondCustomer.get().isSold());
+        Assert.assertEquals(2, admissionQueue.getMaxQueueLength());
+        Assert.assertEquals(3L, admissionQueue.getNumberOfAdmissions());
+
+    }
+
+    @Test
+    public void shouldTurnBatchOrdersAwayWhenNoPumpIsFree() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = newGasStation(new AdmissionPolicy(0, 0, TimeUnit.SECONDS));
+        AdmissionQueue admissionQueue = gasStation.getAdmissionQueue(GasType.DIESEL);
+        CompletableFuture<PurchaseResult> firstCustomer = buyInTheBackground(gasStation);
+        pumping.await();
+
+        // When
+        List<PurchaseResult> results = gasStation.buyGasBatch(Arrays.asList(new FuelOrder(GasType.DIESEL,
+                amountInLiters, maxPricePerLiter)));
+        pumpReleased.countDown();
+
+        // Then
+        Assert.assertEquals(PurchaseStatus.NO_PUMP_AVAILABLE, results.get(0).getStatus());
+        Assert.assertTrue(firstCustomer.get().isSold());
+        Assert.assertEquals(1L, admissionQueue.getNumberOfRejectionsQueueFull());
+        Assert.assertEquals(0, gasStation.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(0, admissionQueue.getQueueLength());
+
+    }
+
+    private GasStationImpl newGasStation(AdmissionPolicy admissionPolicy) {
+        return newGasStation(PumpSelectionStrategy.LEAST_BUSY, admissionPolicy);
+    }
+
+    private GasStationImpl newGasStation(PumpSelectionStrategy strategy, AdmissionPolicy admissionPolicy) {
+
+        GasStationImpl gasStation = new GasStationImpl(strategy, slowDriver, admissionPolicy);
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 10d));
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        return gasStation;
+    }
+
+    private CompletableFuture<PurchaseResult> buyInTheBackground(final GasStationImpl gasStation) {
+        return CompletableFuture.supplyAsync(() -> gasStation.tryBuyGas(GasType.DIESEL, amountInLiters,
+                maxPricePerLiter), customers);
+    }
+
+}
@@ -0,0 +1,58 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.impl.FixedPoint;
+
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for class FixedPoint
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class FixedPointTest {
+
+    @Test
+    public void shouldConvertBetweenLitersAndMilliliters() throws Exception {
+
+        // Then
+        Assert.assertEquals(12345L, FixedPoint.toMilliliters(12.345d));
+        Assert.assertEquals(100L, FixedPoint.toMilliliters(0.1d));
+        Assert.assertEquals(12.345d, FixedPoint.toLiters(12345L));
+
+    }
+
+    @Test
+    public void shouldConvertBetweenEurosAndMicroEuros() throws Exception {
+
+        // Then
+        Assert.assertEquals(1450000L, FixedPoint.toMicroEuros(1.45d));
+        Assert.assertEquals(1.45d, FixedPoint.toEuros(1450000L));
+
+    }
+
+    @Test
+    public void shouldComputeTheCostRoundedToTheMicroEuro() throws Exception {
+
+        // Then
+        Assert.assertEquals(110000L, FixedPoint.cost(100L, 1100000L));
+        Assert.assertEquals(65000000L, FixedPoint.cost(50000L, 1300000L));
+        Assert.assertEquals(2L, FixedPoint.cost(1L, 1500L)); // 1.5 micro-euros round half up
+
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void shouldFailInsteadOfOverflowing() throws Exception {
+
+        // When
+        FixedPoint.cost(Long.MAX_VALUE / 2, 1000000L);
+
+        // Then
+
+        // Exception !!!
+
+    }
+
+}
@@ -0,0 +1,188 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.PurchaseResult;
+import net.bigpoint.assessment.gasstation.extension.PurchaseStatus;
+import net.bigpoint.assessment.gasstation.impl.FuelTank;
+import net.bigpoint.assessment.gasstation.impl.GasPumpDriver;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.PumpSelectionStrategy;
+
+import org.junit.Test;
+
+/**
+ *
+ * This class contains the unit tests for class FuelTank
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class FuelTankTest {
+
+    @Test
+    public void shouldOnlyTakeInWhatFitsInTheTank() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = new GasStationImpl();
+        FuelTank fuelTank = new FuelTank(GasType.DIESEL, 10d, 7.5d);
+        gasStation.addFuelTank(fuelTank);
+
+        // When
+        double delivered = gasStation.deliverToFuelTank(GasType.DIESEL, 5d);
+
+        // Then
+        Assert.assertEquals(2.5d, delivered);
+        Assert.assertEquals(10d, fuelTank.getRemainingAmount());
+        Assert.assertEquals(0d, gasStation.deliverToFuelTank(GasType.DIESEL, 1d));
+
+    }
+
+    @Test
+    public void shouldKeepRoomForTheGasStillBeingPumped() throws Exception {
+
+        // Given
+        final CountDownLatch pumping = new CountDownLatch(1);
+        final CountDownLatch pumpReleased = new CountDownLatch(1);
+        GasStationImpl gasStation = new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, new GasPumpDriver() {
+
+            public void pumpGas(GasPump gasPump, double amountInLiters) {
+                pumping.countDown();
+                try {
+                    pumpReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 0d));
+        FuelTank fuelTank = new FuelTank(GasType.DIESEL, 10d, 10d);
+        gasStation.addFuelTank(fuelTank);
+
+        CompletableFuture<Double> sale = gasStation.buyGasAsync(GasType.DIESEL, 4d, 1d);
+        pumping.await();
+
+        // When
+        double deliveredWhilePumping = gasStation.deliverToFuelTank(GasType.DIESEL, 5d);
+        pumpReleased.countDown();
+        sale.get();
+        double deliveredAfterPumping = gasStation.deliverToFuelTank(GasType.DIESEL, 5d);
+
+        // Then
+        Assert.assertEquals(0d, deliveredWhilePumping);
+        Assert.assertEquals(4d, deliveredAfterPumping);
+        Assert.assertEquals(10d, fuelTank.getRemainingAmount());
+
+    }
+
+    @Test
+    public void shouldMeterTheGasDrawnOnThePumpItself() throws Exception {
+
+        // Given
+        final List<GasPump> meteredPumps = new ArrayList<GasPump>();
+        GasStationImpl gasStation = new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, new GasPumpDriver() {
+
+            public void pumpGas(GasPump gasPump, double amountInLiters) {
+                throw new IllegalStateException("The gas comes from the tank");
+            }
+
+            public void meterGas(GasPump gasPump, double amountInLiters) {
+                meteredPumps.add(gasPump);
+            }
+        });
+        GasPump gasPump = new GasPump(GasType.SUPER, 3d);
+        gasStation.addGasPump(gasPump);
+        gasStation.addFuelTank(new FuelTank(GasType.SUPER, 10d, 10d));
+
+        // When
+        gasStation.buyGas(GasType.SUPER, 2d, 1d);
+
+        // Then
+        Assert.assertEquals(1, meteredPumps.size());
+        Assert.assertSame(gasPump, meteredPumps.get(0));
+        Assert.assertEquals(3d, gasPump.getRemainingAmount());
+        Assert.assertEquals(8d, gasStation.getFuelTank(GasType.SUPER).getRemainingAmount());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldOnlyDeliverToAGasTypeFedByATank() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = new GasStationImpl();
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+
+        // When
+        gasStation.deliverToFuelTank(GasType.DIESEL, 5d);
+
+        // Then
+
+        // Exception !!!
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotHoldMoreThanItsCapacity() throws Exception {
+
+        // When
+        new FuelTank(GasType.SUPER, 10d, 10.001d);
+
+        // Then
+
+        // Exception !!!
+
+    }
+
+    @Test
+    public void shouldNeverSellMoreThanThereIsInTheTank() throws Exception {
+
+        // Given
+        final GasStationImpl gasStation = new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, new GasPumpDriver() {
+
+            public void pumpGas(GasPump gasPump, double amountInLiters) {
+                // no need to wait for the gas here
+            }
+        });
+        gasStation.addGasPump(new GasPump(GasType.REGULAR, 0d));
+        gasStation.addGasPump(new GasPump(GasType.REGULAR, 0d));
+        gasStation.addFuelTank(new FuelTank(GasType.REGULAR, 100d, 10d));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<PurchaseResult>> purchases = new ArrayList<Future<PurchaseResult>>();
+
+        // When
+        for (int i = 0; i < 400; i++) {
+            purchases.add(executor.submit(new Callable<PurchaseResult>() {
+
+                public PurchaseResult call() {
+                    return gasStation.tryBuyGas(GasType.REGULAR, 0.1d, 1d);
+                }
+            }));
+        }
+
+        int sold = 0;
+        for (Future<PurchaseResult> purchase : purchases) {
+            if (purchase.get().getStatus() == PurchaseStatus.SOLD) {
+                sold++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        Assert.assertEquals(100, sold);
+        Assert.assertEquals(0d, gasStation.getFuelTank(GasType.REGULAR).getRemainingAmount());
+        Assert.assertEquals(300, gasStation.getNumberOfCancellationsNoGas());
+
+    }
+
+}
@@ -1,13 +1,31 @@
 package net.bigpoint.assessment.gasstation.impl.test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import junit.framework.Assert;
 import net.bigpoint.assessment.gasstation.GasPump;
 import net.bigpoint.assessment.gasstation.GasType;
 import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
 import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+import net.bigpoint.assessment.gasstation.exception.StacklessGasTooExpensiveException;
+import net.bigpoint.assessment.gasstation.extension.FuelOrder;
+import net.bigpoint.assessment.gasstation.extension.PurchaseResult;
+import net.bigpoint.assessment.gasstation.extension.PurchaseStatus;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
+import net.bigpoint.assessment.gasstation.impl.FuelTank;
+import net.bigpoint.assessment.gasstation.impl.GasPumpDriver;
 import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.HistogramSnapshot;
+import net.bigpoint.assessment.gasstation.impl.PriceTable;
+import net.bigpoint.assessment.gasstation.impl.PumpSelectionStrategy;
+import net.bigpoint.assessment.gasstation.impl.StationMetrics;
 import net.bigpoint.assessment.gasstation.utils.GasStationUtils;
 
 import org.junit.Before;
@@ -509,6 +527,715 @@ public class GasStationImplTest {
 
     }
 
+    @Test
+    public void shouldServeCustomersOnDifferentPumpsAtTheSameTime() throws Exception {
+
+        // Given
+        double amountInLiters = 20d; // two seconds of pumping each
+        final double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, amountInLiters);
+        GasPump pump2 = new GasPump(GasType.SUPER, amountInLiters);
+
+        long maximumElapsedMillis = 3000;
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        gasStation.setPrice(GasType.SUPER, maxPricePerLiter);
+
+        Thread customer1 = createCustomer(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        Thread customer2 = createCustomer(GasType.SUPER, amountInLiters, maxPricePerLiter);
+
+        long start = System.currentTimeMillis();
+        customer1.start();
+        customer2.start();
+        customer1.join();
+        customer2.join();
+        long actualElapsedMillis = System.currentTimeMillis() - start;
+
+        // Then
+        Assert.assertTrue(actualElapsedMillis < maximumElapsedMillis);
+        Assert.assertEquals(2, gasStation.getNumberOfSales());
+
+    }
+
+    @Test
+    public void shouldTakeASnapshotOfAllTheFigures() throws Exception {
+
+        // Given
+        double amountInLiters = 10d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 50d);
+        GasPump pump2 = new GasPump(GasType.SUPER, 50d);
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        gasStation.setPrice(GasType.SUPER, maxPricePerLiter + 0.1);
+
+        gasStation.buyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+
+        try {
+            gasStation.buyGas(GasType.SUPER, amountInLiters, maxPricePerLiter);
+        } catch (GasTooExpensiveException e) {
+            // Don't do anything
+        }
+
+        try {
+            gasStation.buyGas(GasType.REGULAR, amountInLiters, maxPricePerLiter);
+        } catch (NotEnoughGasException e) {
+            // Don't do anything
+        }
+
+        StationSnapshot snapshot = gasStation.getSnapshot();
+
+        // Then
+        Assert.assertEquals(10d, snapshot.getAmountSold(GasType.DIESEL));
+        Assert.assertEquals(15d, snapshot.getRevenue(GasType.DIESEL));
+        Assert.assertEquals(15d, snapshot.getRevenue());
+        Assert.assertEquals(1, snapshot.getNumberOfSales());
+        Assert.assertEquals(1, snapshot.getNumberOfCancellationsTooExpensive(GasType.SUPER));
+        Assert.assertEquals(1, snapshot.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(1.6d, snapshot.getPrice(GasType.SUPER));
+        Assert.assertEquals(3L, snapshot.getVersion());
+        Assert.assertEquals(2, snapshot.getNumberOfPumps());
+        Assert.assertEquals(GasType.DIESEL, snapshot.getPumpGasType(0));
+        Assert.assertEquals(40d, snapshot.getPumpRemainingAmount(0));
+        Assert.assertEquals(50d, snapshot.getPumpRemainingAmount(1));
+
+    }
+
+    @Test
+    public void shouldAccumulateTheRevenueWithoutRoundingErrors() throws Exception {
+
+        // Given
+        double amountInLiters = 0.1d;
+        double maxPricePerLiter = 1.1d;
+        int numberOfSales = 100;
+
+        GasPump pump1 = new GasPump(GasType.REGULAR, 50d);
+
+        double expectedRevenueEarned = 11d;
+        double expectedLitersOfGasSold = 10d;
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.setPrice(GasType.REGULAR, maxPricePerLiter);
+
+        for (int i = 0; i < numberOfSales; i++) {
+            gasStation.buyGas(GasType.REGULAR, amountInLiters, maxPricePerLiter);
+        }
+
+        // Then
+        Assert.assertEquals(expectedRevenueEarned, gasStation.getRevenue());
+        Assert.assertEquals(expectedLitersOfGasSold, gasStation.getAmountSold(GasType.REGULAR));
+
+    }
+
+    @Test
+    public void shouldServeManyCustomersAsynchronouslyWithoutBlockingThem() throws Exception {
+
+        // Given
+        double amountInLiters = 0.2d;
+        double maxPricePerLiter = 1.5d;
+        int numberOfCustomers = 100;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 50d);
+        GasPump pump2 = new GasPump(GasType.DIESEL, 50d);
+
+        long maximumMillisToPlaceAllOrders = 1000;
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+
+        List<CompletableFuture<Double>> purchases = new ArrayList<CompletableFuture<Double>>();
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < numberOfCustomers; i++) {
+            purchases.add(gasStation.buyGasAsync(GasType.DIESEL, amountInLiters, maxPricePerLiter));
+        }
+        long actualMillisToPlaceAllOrders = System.currentTimeMillis() - start;
+
+        CompletableFuture.allOf(purchases.toArray(new CompletableFuture[purchases.size()])).get();
+
+        // Then
+        Assert.assertTrue(actualMillisToPlaceAllOrders < maximumMillisToPlaceAllOrders);
+        Assert.assertEquals(numberOfCustomers, gasStation.getNumberOfSales());
+        Assert.assertEquals(0.3d, purchases.get(0).get());
+        Assert.assertEquals(30d, gasStation.getRevenue());
+
+    }
+
+    @Test
+    public void shouldCompleteTheAsynchronousPurchaseExceptionallyIfTheGasIsTooPricey() throws Exception {
+
+        // Given
+        double amountInLiters = 50d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, amountInLiters);
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter + 0.1);
+
+        CompletableFuture<Double> purchase = gasStation.buyGasAsync(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+
+        // Then
+        try {
+            purchase.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof GasTooExpensiveException);
+        }
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsTooExpensive(GasType.DIESEL));
+
+    }
+
+    @Test(timeout = 10000)
+    public void shouldKeepServingAfterAnErrorWhilePumping() throws Exception {
+
+        // Given
+        final GasPump pump1 = new GasPump(GasType.DIESEL, 10d);
+        final AtomicBoolean jammed = new AtomicBoolean();
+
+        gasStation = new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, new GasPumpDriver() {
+
+            public void pumpGas(GasPump gasPump, double amountInLiters) {
+                if (jammed.compareAndSet(false, true)) {
+                    throw new AssertionError("pump jammed");
+                }
+                GasPumpDriver.DIRECT.pumpGas(gasPump, amountInLiters);
+            }
+        });
+        gasStation.addGasPump(pump1);
+        gasStation.setPrice(GasType.DIESEL, 1d);
+
+        // When
+        gasStation.buyGasAsync(GasType.DIESEL, 1d, 1d);
+        double price = gasStation.buyGas(GasType.DIESEL, 2d, 1d);
+
+        // Then
+        Assert.assertTrue(jammed.get());
+        Assert.assertEquals(2d, price);
+        Assert.assertEquals(8d, pump1.getRemainingAmount());
+
+    }
+
+    @Test
+    public void shouldNotShareTheRejectionsOfAsynchronousPurchases() throws Exception {
+
+        // Given
+        double maxPricePerLiter = 1.5d;
+
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 10d));
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter + 0.1);
+
+        // a stage failing on a failed future attaches its exception to the rejection
+        CompletableFuture<Double> firstPurchase = gasStation.buyGasAsync(GasType.DIESEL, 1d, maxPricePerLiter);
+        CompletableFuture<Double> failedStage = firstPurchase.whenComplete((price, rejection) -> {
+            throw new IllegalStateException("receipt printer jammed");
+        });
+
+        // When
+        CompletableFuture<Double> secondPurchase = gasStation.buyGasAsync(GasType.DIESEL, 1d, maxPricePerLiter);
+        GasTooExpensiveException synchronousRejection = null;
+        try {
+            gasStation.buyGas(GasType.DIESEL, 1d, maxPricePerLiter);
+        } catch (GasTooExpensiveException e) {
+            synchronousRejection = e;
+        }
+
+        // Then
+        Throwable firstRejection = getRejection(firstPurchase);
+        Throwable secondRejection = getRejection(secondPurchase);
+
+        Assert.assertTrue(failedStage.isCompletedExceptionally());
+        Assert.assertEquals(1, firstRejection.getSuppressed().length);
+        Assert.assertNotSame(firstRejection, secondRejection);
+        Assert.assertEquals(0, secondRejection.getSuppressed().length);
+        Assert.assertEquals(0, secondRejection.getStackTrace().length);
+        Assert.assertEquals(0, synchronousRejection.getSuppressed().length);
+
+    }
+
+    @Test
+    public void shouldReportTheOutcomeOfAPurchaseWithoutThrowing() throws Exception {
+
+        // Given
+        double amountInLiters = 10d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, amountInLiters);
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+
+        PurchaseResult tooExpensive = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter - 0.1);
+        PurchaseResult sold = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        PurchaseResult notEnoughGas = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+
+        // Then
+        Assert.assertEquals(PurchaseStatus.TOO_EXPENSIVE, tooExpensive.getStatus());
+        Assert.assertEquals(PurchaseStatus.SOLD, sold.getStatus());
+        Assert.assertEquals(15d, sold.getPrice());
+        Assert.assertEquals(PurchaseStatus.NOT_ENOUGH_GAS, notEnoughGas.getStatus());
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsTooExpensive());
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(1, gasStation.getNumberOfSales());
+
+    }
+
+    @Test
+    public void shouldRejectWithSharedExceptionsWithoutStackTrace() throws Exception {
+
+        // Given
+        double amountInLiters = 10d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, amountInLiters);
+
+        GasTooExpensiveException firstRejection = null;
+        GasTooExpensiveException secondRejection = null;
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter + 0.1);
+
+        try {
+            gasStation.buyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        } catch (GasTooExpensiveException e) {
+            firstRejection = e;
+        }
+
+        try {
+            gasStation.buyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        } catch (GasTooExpensiveException e) {
+            secondRejection = e;
+        }
+
+        // Then
+        Assert.assertSame(firstRejection, secondRejection);
+        Assert.assertEquals(0, firstRejection.getStackTrace().length);
+        Assert.assertEquals(GasType.DIESEL, ((StacklessGasTooExpensiveException) firstRejection).getGasType());
+
+    }
+
+    @Test
+    public void shouldChargeAndBookTheSamePriceEvenIfItChangesWhilePumping() throws Exception {
+
+        // Given
+        double amountInLiters = 10d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, amountInLiters);
+
+        // the price goes up while the customer is pumping
+        gasStation = new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, new GasPumpDriver() {
+
+            public void pumpGas(GasPump gasPump, double amountInLiters) {
+                gasStation.setPrice(GasType.DIESEL, 2d);
+                GasPumpDriver.DIRECT.pumpGas(gasPump, amountInLiters);
+            }
+        });
+
+        double expectedPrice = 15d;
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+
+        double actualPrice = gasStation.buyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+
+        // Then
+        Assert.assertEquals(expectedPrice, actualPrice);
+        Assert.assertEquals(expectedPrice, gasStation.getRevenue());
+        Assert.assertEquals(2d, gasStation.getPrice(GasType.DIESEL));
+        Assert.assertEquals(2L, gasStation.getPriceTable().getVersion());
+
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotLetCallersChangeThePumpsOfTheStation() throws Exception {
+
+        // Given
+        GasPump pump1 = new GasPump(GasType.DIESEL, 10d);
+        GasPump pump2 = new GasPump(GasType.DIESEL, 10d);
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.getGasPumps().add(pump2);
+
+        // Then
+
+        // Exception !!!
+
+    }
+
+    @Test
+    public void shouldStopSendingCustomersToARemovedPump() throws Exception {
+
+        // Given
+        double amountInLiters = 1d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 10d);
+        GasPump pump2 = new GasPump(GasType.DIESEL, 10d);
+        GasPump unknownPump = new GasPump(GasType.DIESEL, 10d);
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+
+        boolean removed = gasStation.removeGasPump(pump1);
+        boolean removedUnknown = gasStation.removeGasPump(unknownPump);
+        gasStation.buyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+
+        // Then
+        Assert.assertTrue(removed);
+        Assert.assertFalse(removedUnknown);
+        Assert.assertEquals(1, gasStation.getGasPumps().size());
+        Assert.assertSame(pump2, gasStation.getGasPumps().iterator().next());
+        Assert.assertEquals(10d, pump1.getRemainingAmount());
+        Assert.assertEquals(9d, pump2.getRemainingAmount());
+
+    }
+
+    @Test
+    public void shouldAddPumpsWhileCustomersAreBeingServed() throws Exception {
+
+        // Given
+        double amountInLiters = 0.1d;
+        double maxPricePerLiter = 1.5d;
+        int numberOfCustomers = 200;
+        int numberOfPumps = 20;
+
+        List<CompletableFuture<Double>> purchases = new ArrayList<CompletableFuture<Double>>();
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, numberOfCustomers * amountInLiters));
+
+        // When
+        for (int i = 0; i < numberOfCustomers; i++) {
+            purchases.add(gasStation.buyGasAsync(GasType.DIESEL, amountInLiters, maxPricePerLiter));
+            if (i % (numberOfCustomers / numberOfPumps) == 0) {
+                gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+                for (GasPump gasPump : gasStation.getGasPumps()) {
+                    gasPump.getRemainingAmount();
+                }
+            }
+        }
+
+        CompletableFuture.allOf(purchases.toArray(new CompletableFuture[purchases.size()])).get();
+
+        // Then
+        Assert.assertEquals(numberOfPumps + 1, gasStation.getGasPumps().size());
+        Assert.assertEquals(numberOfCustomers, gasStation.getNumberOfSales());
+        Assert.assertEquals(0, gasStation.getNumberOfCancellationsNoGas());
+
+    }
+
+    @Test
+    public void shouldSplitTheGasAcrossSeveralPumpsOnlyIfEnabled() throws Exception {
+
+        // Given
+        double amountInLiters = 4d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 3d);
+        GasPump pump2 = new GasPump(GasType.DIESEL, 3d);
+
+        double expectedPrice = 6d;
+        double expectedRemainingAmount = 2d;
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+
+        PurchaseResult withoutSplitFill = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+
+        gasStation.setSplitFillEnabled(true);
+        PurchaseResult withSplitFill = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        PurchaseResult tooMuch = gasStation.tryBuyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+
+        // Then
+        Assert.assertEquals(PurchaseStatus.NOT_ENOUGH_GAS, withoutSplitFill.getStatus());
+        Assert.assertEquals(PurchaseStatus.SOLD, withSplitFill.getStatus());
+        Assert.assertEquals(expectedPrice, withSplitFill.getPrice());
+        Assert.assertEquals(PurchaseStatus.NOT_ENOUGH_GAS, tooMuch.getStatus());
+        Assert.assertEquals(expectedRemainingAmount, pump1.getRemainingAmount() + pump2.getRemainingAmount(), 1e-9);
+        Assert.assertEquals(amountInLiters, gasStation.getAmountSold(GasType.DIESEL));
+        Assert.assertEquals(1, gasStation.getNumberOfSales());
+        Assert.assertEquals(2, gasStation.getNumberOfCancellationsNoGas());
+
+    }
+
+    @Test
+    public void shouldPumpASplitFillOnAllItsPumpsAtTheSameTime() throws Exception {
+
+        // Given
+        double amountInLiters = 20d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 10d);
+        GasPump pump2 = new GasPump(GasType.DIESEL, 10d);
+
+        // one pump alone would need 2 seconds for the whole amount
+        long maximumMillisToPump = 1900;
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        gasStation.setSplitFillEnabled(true);
+
+        long start = System.currentTimeMillis();
+        gasStation.buyGas(GasType.DIESEL, amountInLiters, maxPricePerLiter);
+        long actualMillisToPump = System.currentTimeMillis() - start;
+
+        // Then
+        Assert.assertTrue(actualMillisToPump < maximumMillisToPump);
+        Assert.assertEquals(0d, pump1.getRemainingAmount());
+        Assert.assertEquals(0d, pump2.getRemainingAmount());
+
+    }
+
+    @Test
+    public void shouldServeCustomersWithoutLockingTheWholeStation() throws Exception {
+
+        // Given
+        double amountInLiters = 1d;
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 10d);
+        GasPump pump2 = new GasPump(GasType.REGULAR, 10d);
+
+        final CountDownLatch regularServed = new CountDownLatch(1);
+        final CompletableFuture<PurchaseResult> regularPurchase = new CompletableFuture<PurchaseResult>();
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        gasStation.setPrice(GasType.REGULAR, maxPricePerLiter);
+
+        // a regular sale only locks the regular pumps
+        synchronized (gasStation) {
+            new Thread(() -> {
+                regularPurchase.complete(gasStation.tryBuyGas(GasType.REGULAR, amountInLiters, maxPricePerLiter));
+                regularServed.countDown();
+            }).start();
+            Assert.assertTrue(regularServed.await(5, TimeUnit.SECONDS));
+        }
+
+        // Then
+        Assert.assertTrue(regularPurchase.get().isSold());
+        Assert.assertEquals(9d, pump2.getRemainingAmount());
+        Assert.assertEquals(10d, pump1.getRemainingAmount());
+
+    }
+
+    @Test
+    public void shouldBuyABatchOfOrdersReportingEveryOrderOnItsOwn() throws Exception {
+
+        // Given
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 10d);
+        GasPump pump2 = new GasPump(GasType.DIESEL, 10d);
+        GasPump pump3 = new GasPump(GasType.SUPER, 10d);
+
+        List<FuelOrder> orders = new ArrayList<FuelOrder>();
+        orders.add(new FuelOrder(GasType.DIESEL, 8d, maxPricePerLiter));
+        orders.add(new FuelOrder(GasType.SUPER, 5d, maxPricePerLiter));
+        orders.add(new FuelOrder(GasType.DIESEL, 8d, maxPricePerLiter));
+        orders.add(new FuelOrder(GasType.SUPER, 5d, maxPricePerLiter - 0.1));
+        orders.add(new FuelOrder(GasType.DIESEL, 8d, maxPricePerLiter));
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.addGasPump(pump3);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        gasStation.setPrice(GasType.SUPER, maxPricePerLiter);
+
+        List<PurchaseResult> results = gasStation.buyGasBatch(orders);
+
+        // Then
+        Assert.assertEquals(orders.size(), results.size());
+        Assert.assertEquals(12d, results.get(0).getPrice());
+        Assert.assertEquals(7.5d, results.get(1).getPrice());
+        Assert.assertEquals(12d, results.get(2).getPrice());
+        Assert.assertEquals(PurchaseStatus.TOO_EXPENSIVE, results.get(3).getStatus());
+        Assert.assertEquals(PurchaseStatus.NOT_ENOUGH_GAS, results.get(4).getStatus());
+        Assert.assertEquals(3, gasStation.getNumberOfSales());
+        Assert.assertEquals(31.5d, gasStation.getRevenue());
+        Assert.assertEquals(16d, gasStation.getAmountSold(GasType.DIESEL));
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsTooExpensive(GasType.SUPER));
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsNoGas(GasType.DIESEL));
+        Assert.assertEquals(5d, pump3.getRemainingAmount());
+
+    }
+
+    @Test
+    public void shouldRefillAPumpInItsPlaceWhileServingTheGasAlreadyReserved() throws Exception {
+
+        // Given
+        final GasPump pump1 = new GasPump(GasType.DIESEL, 1d);
+        GasPump pump2 = new GasPump(GasType.SUPER, 1d);
+        final CountDownLatch pumping = new CountDownLatch(1);
+        final CountDownLatch refilled = new CountDownLatch(1);
+
+        gasStation = new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, new GasPumpDriver() {
+
+            public void pumpGas(GasPump gasPump, double amountInLiters) {
+                if (gasPump == pump1) {
+                    pumping.countDown();
+                    try {
+                        refilled.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                GasPumpDriver.DIRECT.pumpGas(gasPump, amountInLiters);
+            }
+        });
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+
+        CompletableFuture<Double> firstSale = gasStation.buyGasAsync(GasType.DIESEL, 0.6d, 1d);
+        pumping.await();
+
+        // When
+        GasPump newPump = gasStation.refillGasPump(pump1, 2d);
+        refilled.countDown();
+        firstSale.get();
+
+        // Then
+        List<GasPump> gasPumps = new ArrayList<GasPump>(gasStation.getGasPumps());
+
+        Assert.assertEquals(2.4d, newPump.getRemainingAmount());
+        Assert.assertEquals(0.4d, pump1.getRemainingAmount(), 0.000001d);
+        Assert.assertSame(newPump, gasPumps.get(0));
+        Assert.assertSame(pump2, gasPumps.get(1));
+        Assert.assertNull(gasStation.refillGasPump(pump1, 2d));
+        Assert.assertEquals(PurchaseStatus.SOLD, gasStation.tryBuyGas(GasType.DIESEL, 2.4d, 1d).getStatus());
+
+    }
+
+    @Test
+    public void shouldSellFromTheTankFeedingThePumps() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.addGasPump(new GasPump(GasType.SUPER, 1d));
+        gasStation.addFuelTank(new FuelTank(GasType.DIESEL, 10d, 5d));
+
+        // When
+        double price = gasStation.buyGas(GasType.DIESEL, 3d, 1d);
+        PurchaseResult tooMuch = gasStation.tryBuyGas(GasType.DIESEL, 2.5d, 1d);
+
+        // Then
+        StationSnapshot snapshot = gasStation.getSnapshot();
+
+        Assert.assertEquals(0d, price);
+        Assert.assertEquals(PurchaseStatus.NOT_ENOUGH_GAS, tooMuch.getStatus());
+        Assert.assertEquals(2d, gasStation.getFuelTank(GasType.DIESEL).getRemainingAmount());
+        Assert.assertEquals(2d, snapshot.getPumpRemainingAmount(0));
+        Assert.assertEquals(2d, snapshot.getPumpRemainingAmount(1));
+        Assert.assertEquals(1d, snapshot.getPumpRemainingAmount(2));
+        Assert.assertNull(gasStation.getFuelTank(GasType.SUPER));
+
+        // the pumps fed by the tank only meter the gas drawn from it
+        for (GasPump gasPump : gasStation.getGasPumps()) {
+            Assert.assertEquals(1d, gasPump.getRemainingAmount());
+        }
+
+    }
+
+    @Test
+    public void shouldChangeAllThePricesAtOnceUnlessTheyChangedMeanwhile() throws Exception {
+
+        // Given
+        gasStation.setPrice(GasType.DIESEL, 1d);
+        PriceTable prices = gasStation.getPriceTable();
+        long[] newPrices = { 1100000L, 1200000L, 1300000L };
+
+        // When
+        boolean updated = gasStation.updatePrices(prices, newPrices);
+        boolean updatedAgain = gasStation.updatePrices(prices, new long[3]);
+
+        // Then
+        PriceTable updatedPrices = gasStation.getPriceTable();
+
+        Assert.assertTrue(updated);
+        Assert.assertFalse(updatedAgain);
+        Assert.assertEquals(prices.getVersion() + 1, updatedPrices.getVersion());
+        for (GasType gasType : GasType.values()) {
+            Assert.assertEquals(newPrices[gasType.ordinal()], updatedPrices.getMicroEurosPerLiter(gasType));
+        }
+
+    }
+
+    @Test
+    public void shouldMeasureRatesAndLatenciesOfTheSales() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+
+        // When
+        gasStation.buyGas(GasType.DIESEL, 1d, 2d);
+        gasStation.tryBuyGas(GasType.DIESEL, 1d, 2d);
+        gasStation.tryBuyGas(GasType.DIESEL, 1d, 1d);
+
+        // Then
+        StationMetrics metrics = gasStation.getMetrics();
+        HistogramSnapshot pumpTimes = metrics.getPumpTimes(GasType.DIESEL).getSnapshot();
+
+        Assert.assertEquals(1L, metrics.getSalesRates().getNumberOfSales(GasType.DIESEL));
+        Assert.assertEquals(1.5d, metrics.getSalesRates().getRevenue(GasType.DIESEL));
+        Assert.assertEquals(1L, metrics.getSalesRates().getNumberOfCancellationsNoGas(GasType.DIESEL));
+        Assert.assertEquals(1L, metrics.getSalesRates().getNumberOfCancellationsTooExpensive(GasType.DIESEL));
+        Assert.assertEquals(1L, metrics.getWaitTimes(GasType.DIESEL).getSnapshot().getCount());
+        Assert.assertEquals(1L, pumpTimes.getCount());
+        Assert.assertTrue(pumpTimes.getValueAtPercentile(50d) >= TimeUnit.MILLISECONDS.toNanos(100));
+
+    }
+
+    @Test
+    public void shouldMeasureTheWaitBehindABusyPumpAsWaitTime() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.SUPER, 2d));
+
+        // When
+        CompletableFuture<Double> firstSale = gasStation.buyGasAsync(GasType.SUPER, 1d, 1d);
+        CompletableFuture<Double> secondSale = gasStation.buyGasAsync(GasType.SUPER, 1d, 1d);
+        firstSale.get();
+        secondSale.get();
+
+        // Then
+        // both take about 0.1 seconds to pump, but the second customer waits as long for the first one
+        HistogramSnapshot waitTimes = gasStation.getMetrics().getWaitTimes(GasType.SUPER).getSnapshot();
+        HistogramSnapshot pumpTimes = gasStation.getMetrics().getPumpTimes(GasType.SUPER).getSnapshot();
+
+        Assert.assertEquals(2L, waitTimes.getCount());
+        Assert.assertEquals(2L, pumpTimes.getCount());
+        Assert.assertTrue(waitTimes.getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(90));
+        Assert.assertTrue(pumpTimes.getMaxNanos() < TimeUnit.MILLISECONDS.toNanos(190));
+
+    }
+
     @Test
     public void shouldPreserveTheCorrectDataOnSharedVariablesNoMatterTheActualThreadExecution() throws Exception {
 
@@ -627,4 +1354,28 @@ public class GasStationImplTest {
         Assert.assertEquals(actualCancellationsTooExpensiveRegular, expectedCancellationsTooExpensiveRegular);
 
     }
+
+    private static Throwable getRejection(CompletableFuture<Double> purchase) throws InterruptedException {
+
+        try {
+            purchase.get();
+            throw new AssertionError("The purchase should have been rejected");
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private Thread createCustomer(final GasType type, final double amountInLiters, final double maxPricePerLiter) {
+
+        return new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    gasStation.buyGas(type, amountInLiters, maxPricePerLiter);
+                } catch (Exception e) {
+                    // the assertions will tell
+                }
+            }
+        });
+    }
 }
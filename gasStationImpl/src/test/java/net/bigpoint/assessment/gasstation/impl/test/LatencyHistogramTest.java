@@ -0,0 +1,89 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.impl.HistogramSnapshot;
+import net.bigpoint.assessment.gasstation.impl.LatencyHistogram;
+
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for class LatencyHistogram
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldGivePercentilesWithinASixteenthOfTheRealValue() throws Exception {
+
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // When
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+
+        // Then
+        Assert.assertEquals(1000L, snapshot.getCount());
+        Assert.assertEquals(500500L, snapshot.getTotal(TimeUnit.MILLISECONDS));
+        assertWithinASixteenth(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getValueAtPercentile(50d));
+        assertWithinASixteenth(TimeUnit.MILLISECONDS.toNanos(990), snapshot.getValueAtPercentile(99d));
+        assertWithinASixteenth(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxNanos());
+
+    }
+
+    private static void assertWithinASixteenth(long expected, long actual) {
+        Assert.assertTrue(actual + " should not be below " + expected, actual >= expected);
+        Assert.assertTrue(actual + " should be close to " + expected, actual <= expected + expected / 16);
+    }
+
+    @Test
+    public void shouldKeepSmallValuesExact() throws Exception {
+
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // When
+        histogram.record(3L);
+        histogram.record(-5L);
+        HistogramSnapshot snapshot = histogram.getSnapshot();
+
+        // Then
+        Assert.assertEquals(2L, snapshot.getCount());
+        Assert.assertEquals(0L, snapshot.getValueAtPercentile(50d));
+        Assert.assertEquals(3L, snapshot.getValueAtPercentile(100d));
+        Assert.assertEquals(1.5d, snapshot.getMeanNanos());
+
+    }
+
+    @Test
+    public void shouldStartOverAfterAReset() throws Exception {
+
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000L);
+        histogram.record(Long.MAX_VALUE);
+
+        // When
+        HistogramSnapshot first = histogram.getSnapshotAndReset();
+        histogram.record(10L);
+        HistogramSnapshot second = histogram.getSnapshotAndReset();
+        HistogramSnapshot third = histogram.getSnapshot();
+
+        // Then
+        Assert.assertEquals(2L, first.getCount());
+        Assert.assertEquals(Long.MAX_VALUE, first.getMaxNanos());
+        Assert.assertEquals(1L, second.getCount());
+        Assert.assertEquals(10L, second.getMaxNanos());
+        Assert.assertEquals(0L, third.getCount());
+        Assert.assertEquals(0L, third.getValueAtPercentile(99d));
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.PriceTable;
+
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for class PriceTable
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class PriceTableTest {
+
+    @Test
+    public void shouldStartWithEveryGasTypeForFree() throws Exception {
+
+        // Then
+        for (GasType gasType : GasType.values()) {
+            Assert.assertEquals(0L, PriceTable.EMPTY.getMicroEurosPerLiter(gasType));
+        }
+        Assert.assertEquals(0L, PriceTable.EMPTY.getVersion());
+
+    }
+
+    @Test
+    public void shouldChangeAPriceOnANewVersionLeavingTheOldOneUntouched() throws Exception {
+
+        // Given
+        PriceTable oldPrices = PriceTable.EMPTY.withPrice(GasType.DIESEL, 1450000L);
+
+        // When
+        PriceTable newPrices = oldPrices.withPrice(GasType.SUPER, 1600000L);
+
+        // Then
+        Assert.assertEquals(1L, oldPrices.getVersion());
+        Assert.assertEquals(0L, oldPrices.getMicroEurosPerLiter(GasType.SUPER));
+        Assert.assertEquals(2L, newPrices.getVersion());
+        Assert.assertEquals(1.45d, newPrices.getPrice(GasType.DIESEL));
+        Assert.assertEquals(1.6d, newPrices.getPrice(GasType.SUPER));
+
+    }
+
+}
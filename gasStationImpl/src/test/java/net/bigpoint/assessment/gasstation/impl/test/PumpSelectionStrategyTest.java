@@ -0,0 +1,141 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.PumpSelectionStrategy;
+
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for enumeration PumpSelectionStrategy
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class PumpSelectionStrategyTest {
+
+    private static final double PRICE_PER_LITER = 1.5d;
+
+    @Test
+    public void firstFitShouldUseTheFirstPumpWithEnoughGas() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = createGasStation(PumpSelectionStrategy.FIRST_FIT);
+
+        // When
+        gasStation.buyGas(GasType.DIESEL, 2d, PRICE_PER_LITER);
+        gasStation.buyGas(GasType.DIESEL, 2d, PRICE_PER_LITER);
+        StationSnapshot snapshot = gasStation.getSnapshot();
+
+        // Then
+        Assert.assertEquals(16d, snapshot.getPumpRemainingAmount(0));
+        Assert.assertEquals(10d, snapshot.getPumpRemainingAmount(1));
+        Assert.assertEquals(10d, snapshot.getPumpRemainingAmount(2));
+
+    }
+
+    @Test
+    public void bestFitShouldUseThePumpWithTheLeastGasThatIsStillEnough() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = createGasStation(PumpSelectionStrategy.BEST_FIT);
+
+        // When
+        gasStation.buyGas(GasType.DIESEL, 2d, PRICE_PER_LITER);
+        gasStation.buyGas(GasType.DIESEL, 9d, PRICE_PER_LITER);
+        StationSnapshot snapshot = gasStation.getSnapshot();
+
+        // Then
+        Assert.assertEquals(11d, snapshot.getPumpRemainingAmount(0));
+        Assert.assertEquals(8d, snapshot.getPumpRemainingAmount(1));
+        Assert.assertEquals(10d, snapshot.getPumpRemainingAmount(2));
+
+    }
+
+    @Test
+    public void roundRobinShouldMakeThePumpsTakeTurns() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = createGasStation(PumpSelectionStrategy.ROUND_ROBIN);
+
+        // When
+        gasStation.buyGas(GasType.DIESEL, 2d, PRICE_PER_LITER);
+        gasStation.buyGas(GasType.DIESEL, 2d, PRICE_PER_LITER);
+        gasStation.buyGas(GasType.DIESEL, 2d, PRICE_PER_LITER);
+        StationSnapshot snapshot = gasStation.getSnapshot();
+
+        // Then
+        Assert.assertEquals(16d, snapshot.getPumpRemainingAmount(0));
+        Assert.assertEquals(8d, snapshot.getPumpRemainingAmount(1));
+        Assert.assertEquals(10d, snapshot.getPumpRemainingAmount(2));
+
+    }
+
+    @Test
+    public void leastBusyShouldAvoidThePumpSomebodyIsUsing() throws Exception {
+
+        // Given
+        final GasStationImpl gasStation = createGasStation(PumpSelectionStrategy.LEAST_BUSY);
+
+        Thread firstCustomer = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    gasStation.buyGas(GasType.DIESEL, 5d, PRICE_PER_LITER);
+                } catch (Exception e) {
+                    // the assertions will tell
+                }
+            }
+        });
+
+        // When
+        firstCustomer.start();
+        Thread.sleep(200); // let the first customer start pumping
+
+        gasStation.buyGas(GasType.DIESEL, 2d, PRICE_PER_LITER);
+        firstCustomer.join();
+        StationSnapshot snapshot = gasStation.getSnapshot();
+
+        // Then
+        Assert.assertEquals(15d, snapshot.getPumpRemainingAmount(0));
+        Assert.assertEquals(8d, snapshot.getPumpRemainingAmount(1));
+
+    }
+
+    @Test
+    public void everyStrategyShouldIgnorePumpsWithoutEnoughGas() throws Exception {
+
+        for (PumpSelectionStrategy strategy : PumpSelectionStrategy.values()) {
+
+            // Given
+            GasStationImpl gasStation = createGasStation(strategy);
+
+            // When
+            gasStation.buyGas(GasType.DIESEL, 15d, PRICE_PER_LITER);
+            StationSnapshot snapshot = gasStation.getSnapshot();
+
+            // Then
+            Assert.assertEquals(5d, snapshot.getPumpRemainingAmount(0));
+            Assert.assertEquals(10d, snapshot.getPumpRemainingAmount(1));
+        }
+
+    }
+
+    private GasStationImpl createGasStation(PumpSelectionStrategy strategy) {
+
+        GasStationImpl gasStation = new GasStationImpl(strategy);
+
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 20d));
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 10d));
+        gasStation.addGasPump(new GasPump(GasType.SUPER, 10d));
+        gasStation.setPrice(GasType.DIESEL, PRICE_PER_LITER);
+        gasStation.setPrice(GasType.SUPER, PRICE_PER_LITER);
+
+        return gasStation;
+    }
+
+}
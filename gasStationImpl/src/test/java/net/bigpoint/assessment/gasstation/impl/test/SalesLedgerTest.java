@@ -0,0 +1,164 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.SalesLedger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for class SalesLedger
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class SalesLedgerTest {
+
+    private SalesLedger salesLedger;
+
+    @Before
+    public void setup() {
+
+        salesLedger = new SalesLedger();
+
+    }
+
+    @Test
+    public void shouldAddUpSalesAndCancellationsPerGasType() throws Exception {
+
+        // When
+        salesLedger.recordSale(GasType.DIESEL, 10000L, 15000000L);
+        salesLedger.recordSale(GasType.DIESEL, 20000L, 30000000L);
+        salesLedger.recordSale(GasType.SUPER, 5000L, 8000000L);
+        salesLedger.recordCancellationNoGas(GasType.REGULAR);
+        salesLedger.recordCancellationTooExpensive(GasType.SUPER);
+        salesLedger.recordCancellationTooExpensive(GasType.SUPER);
+
+        // Then
+        Assert.assertEquals(30d, salesLedger.getAmountSold(GasType.DIESEL));
+        Assert.assertEquals(45d, salesLedger.getRevenue(GasType.DIESEL));
+        Assert.assertEquals(53d, salesLedger.getRevenue());
+        Assert.assertEquals(2, salesLedger.getNumberOfSales(GasType.DIESEL));
+        Assert.assertEquals(3, salesLedger.getNumberOfSales());
+        Assert.assertEquals(1, salesLedger.getNumberOfCancellationsNoGas(GasType.REGULAR));
+        Assert.assertEquals(1, salesLedger.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(2, salesLedger.getNumberOfCancellationsTooExpensive(GasType.SUPER));
+        Assert.assertEquals(2, salesLedger.getNumberOfCancellationsTooExpensive());
+
+    }
+
+    @Test
+    public void shouldRecordABatchAsASingleUpdate() throws Exception {
+
+        // Given
+        int numberOfGasTypes = GasType.values().length;
+        long[] milliliters = new long[numberOfGasTypes];
+        long[] microEuros = new long[numberOfGasTypes];
+        int[] sales = new int[numberOfGasTypes];
+        int[] cancellationsNoGas = new int[numberOfGasTypes];
+        int[] cancellationsTooExpensive = new int[numberOfGasTypes];
+
+        milliliters[GasType.DIESEL.ordinal()] = 30000L;
+        microEuros[GasType.DIESEL.ordinal()] = 45000000L;
+        sales[GasType.DIESEL.ordinal()] = 2;
+        cancellationsNoGas[GasType.REGULAR.ordinal()] = 1;
+        cancellationsTooExpensive[GasType.SUPER.ordinal()] = 3;
+
+        // When
+        salesLedger.recordBatch(milliliters, microEuros, sales, cancellationsNoGas, cancellationsTooExpensive);
+
+        // Then
+        Assert.assertEquals(1L, salesLedger.copyTo(new double[numberOfGasTypes], new double[numberOfGasTypes],
+                new int[numberOfGasTypes], new int[numberOfGasTypes], new int[numberOfGasTypes]));
+        Assert.assertEquals(30d, salesLedger.getAmountSold(GasType.DIESEL));
+        Assert.assertEquals(45d, salesLedger.getRevenue());
+        Assert.assertEquals(2, salesLedger.getNumberOfSales());
+        Assert.assertEquals(1, salesLedger.getNumberOfCancellationsNoGas(GasType.REGULAR));
+        Assert.assertEquals(3, salesLedger.getNumberOfCancellationsTooExpensive(GasType.SUPER));
+
+    }
+
+    @Test
+    public void shouldNotLoseAnyUpdateWhenManyThreadsRecordAtTheSameTime() throws Exception {
+
+        // Given
+        final int numberOfThreads = 8;
+        final int salesPerThread = 10000;
+        final CountDownLatch done = new CountDownLatch(numberOfThreads);
+
+        // When
+        for (int i = 0; i < numberOfThreads; i++) {
+            new Thread(new Runnable() {
+
+                public void run() {
+                    for (int j = 0; j < salesPerThread; j++) {
+                        salesLedger.recordSale(GasType.REGULAR, 1000L, 2000000L);
+                        salesLedger.recordCancellationNoGas(GasType.REGULAR);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        // Then
+        Assert.assertEquals(numberOfThreads * salesPerThread, salesLedger.getNumberOfSales(GasType.REGULAR));
+        Assert.assertEquals(numberOfThreads * salesPerThread, salesLedger.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(numberOfThreads * salesPerThread * 1d, salesLedger.getAmountSold(GasType.REGULAR));
+        Assert.assertEquals(numberOfThreads * salesPerThread * 2d, salesLedger.getRevenue(GasType.REGULAR));
+
+    }
+
+    @Test(timeout = 30000)
+    public void shouldCopyConsistentFiguresWhileThreadsKeepRecording() throws Exception {
+
+        // Given
+        final int numberOfThreads = 4;
+        final AtomicBoolean recording = new AtomicBoolean(true);
+        final CountDownLatch done = new CountDownLatch(numberOfThreads);
+
+        for (int i = 0; i < numberOfThreads; i++) {
+            new Thread(new Runnable() {
+
+                public void run() {
+                    while (recording.get()) {
+                        salesLedger.recordSale(GasType.REGULAR, 1000L, 2000000L);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        int numberOfGasTypes = GasType.values().length;
+        double[] litersSold = new double[numberOfGasTypes];
+        double[] revenue = new double[numberOfGasTypes];
+        int[] sales = new int[numberOfGasTypes];
+        int[] cancellationsNoGas = new int[numberOfGasTypes];
+        int[] cancellationsTooExpensive = new int[numberOfGasTypes];
+
+        // When
+        int inconsistentCopies = 0;
+        try {
+            for (int i = 0; i < 10000; i++) {
+                salesLedger.copyTo(litersSold, revenue, sales, cancellationsNoGas, cancellationsTooExpensive);
+                int index = GasType.REGULAR.ordinal();
+                if (litersSold[index] != sales[index] || revenue[index] != 2d * sales[index]) {
+                    inconsistentCopies++;
+                }
+            }
+        } finally {
+            recording.set(false);
+        }
+        done.await();
+
+        // Then
+        Assert.assertEquals(0, inconsistentCopies);
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package net.bigpoint.assessment.gasstation.impl.test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.SalesRates;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for class SalesRates
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class SalesRatesTest {
+
+    private AtomicLong clock;
+    private SalesRates salesRates;
+
+    @Before
+    public void setup() {
+
+        clock = new AtomicLong();
+        salesRates = new SalesRates(1L, TimeUnit.MINUTES, 6, clock::get);
+
+    }
+
+    private void advance(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void shouldGiveTheRatesOfTheLastWindow() throws Exception {
+
+        // Given
+        salesRates.recordSale(GasType.DIESEL, 40000L, 60000000L);
+        advance(30);
+        salesRates.recordSale(GasType.DIESEL, 20000L, 30000000L);
+        salesRates.recordCancellationNoGas(GasType.DIESEL);
+        salesRates.recordCancellationTooExpensive(GasType.SUPER);
+
+        // When
+        advance(20);
+
+        // Then
+        Assert.assertEquals(2L, salesRates.getNumberOfSales(GasType.DIESEL));
+        Assert.assertEquals(2d, salesRates.getSalesPerMinute(GasType.DIESEL));
+        Assert.assertEquals(60d, salesRates.getLitersPerMinute(GasType.DIESEL));
+        Assert.assertEquals(90d, salesRates.getRevenuePerMinute(GasType.DIESEL));
+        Assert.assertEquals(1d, salesRates.getCancellationsNoGasPerMinute(GasType.DIESEL));
+        Assert.assertEquals(1d, salesRates.getCancellationsTooExpensivePerMinute(GasType.SUPER));
+        Assert.assertEquals(0d, salesRates.getSalesPerMinute(GasType.SUPER));
+
+    }
+
+    @Test
+    public void shouldForgetWhatFellOutOfTheWindow() throws Exception {
+
+        // Given
+        salesRates.recordSale(GasType.REGULAR, 1000L, 1000000L);
+        advance(30);
+        salesRates.recordSale(GasType.REGULAR, 1000L, 1000000L);
+
+        // When
+        advance(40);
+        long salesAfterSeventySeconds = salesRates.getNumberOfSales(GasType.REGULAR);
+        advance(60);
+        salesRates.recordCancellationNoGas(GasType.REGULAR);
+        long salesAfterTwoMinutes = salesRates.getNumberOfSales(GasType.REGULAR);
+
+        // Then
+        Assert.assertEquals(1L, salesAfterSeventySeconds);
+        Assert.assertEquals(0L, salesAfterTwoMinutes);
+        Assert.assertEquals(1L, salesRates.getNumberOfCancellationsNoGas(GasType.REGULAR));
+
+    }
+
+    @Test
+    public void shouldForgetEverythingOnReset() throws Exception {
+
+        // Given
+        salesRates.recordSale(GasType.DIESEL, 1000L, 1000000L);
+
+        // When
+        salesRates.reset();
+
+        // Then
+        Assert.assertEquals(0L, salesRates.getNumberOfSales(GasType.DIESEL));
+        Assert.assertEquals(0d, salesRates.getRevenue(GasType.DIESEL));
+
+    }
+
+}
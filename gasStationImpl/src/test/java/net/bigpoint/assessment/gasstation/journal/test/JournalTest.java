@@ -0,0 +1,328 @@
+package net.bigpoint.assessment.gasstation.journal.test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.FuelTank;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.journal.Journal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 
+ * This class contains the unit tests for class Journal
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class JournalTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setup() {
+
+        directory = temporaryFolder.getRoot().toPath().resolve("journal");
+
+    }
+
+    @Test
+    public void shouldRebuildTheGasStationAfterARestart() throws Exception {
+
+        // Given
+        double maxPricePerLiter = 1.5d;
+
+        GasPump pump1 = new GasPump(GasType.DIESEL, 10d);
+        GasPump pump2 = new GasPump(GasType.SUPER, 5d);
+        GasPump pump3 = new GasPump(GasType.SUPER, 5d);
+
+        Journal journal = Journal.open(directory);
+        GasStationImpl gasStation = journal.recover(new GasStationImpl());
+
+        // When
+        gasStation.addGasPump(pump1);
+        gasStation.addGasPump(pump2);
+        gasStation.addGasPump(pump3);
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+        gasStation.setPrice(GasType.SUPER, 1.75d);
+
+        gasStation.tryBuyGas(GasType.DIESEL, 2.5d, maxPricePerLiter);
+        gasStation.tryBuyGas(GasType.SUPER, 1d, 2d);
+        gasStation.tryBuyGas(GasType.SUPER, 1d, maxPricePerLiter);
+        gasStation.tryBuyGas(GasType.DIESEL, 20d, maxPricePerLiter);
+        gasStation.removeGasPump(pump3);
+        journal.close();
+
+        Journal reopenedJournal = Journal.open(directory);
+        GasStationImpl recoveredGasStation = reopenedJournal.recover(new GasStationImpl());
+
+        // Then
+        Assert.assertEquals(2, recoveredGasStation.getGasPumps().size());
+        Assert.assertEquals(7.5d, getRemainingAmount(recoveredGasStation, GasType.DIESEL));
+        Assert.assertEquals(4d, getRemainingAmount(recoveredGasStation, GasType.SUPER));
+        Assert.assertEquals(maxPricePerLiter, recoveredGasStation.getPrice(GasType.DIESEL));
+        Assert.assertEquals(1.75d, recoveredGasStation.getPrice(GasType.SUPER));
+        Assert.assertEquals(gasStation.getRevenue(), recoveredGasStation.getRevenue());
+        Assert.assertEquals(2.5d, recoveredGasStation.getAmountSold(GasType.DIESEL));
+        Assert.assertEquals(2, recoveredGasStation.getNumberOfSales());
+        Assert.assertEquals(1, recoveredGasStation.getNumberOfCancellationsTooExpensive(GasType.SUPER));
+        Assert.assertEquals(1, recoveredGasStation.getNumberOfCancellationsNoGas(GasType.DIESEL));
+
+        reopenedJournal.close();
+
+    }
+
+    @Test
+    public void shouldKeepJournalingAfterARecovery() throws Exception {
+
+        // Given
+        double maxPricePerLiter = 1.5d;
+
+        Journal journal = Journal.open(directory, 4, Long.MAX_VALUE);
+        GasStationImpl gasStation = journal.recover(new GasStationImpl());
+        gasStation.addGasPump(new GasPump(GasType.REGULAR, 10d));
+        gasStation.setPrice(GasType.REGULAR, maxPricePerLiter);
+        gasStation.tryBuyGas(GasType.REGULAR, 1d, maxPricePerLiter);
+        journal.close();
+
+        // When
+        journal = Journal.open(directory, 4, Long.MAX_VALUE);
+        gasStation = journal.recover(new GasStationImpl());
+        gasStation.tryBuyGas(GasType.REGULAR, 1d, maxPricePerLiter);
+        gasStation.addGasPump(new GasPump(GasType.REGULAR, 1d));
+        journal.flush();
+        journal.close();
+
+        journal = Journal.open(directory, 4, Long.MAX_VALUE);
+        gasStation = journal.recover(new GasStationImpl());
+
+        // Then
+        Assert.assertEquals(2, gasStation.getNumberOfSales(GasType.REGULAR));
+        Assert.assertEquals(3d, gasStation.getRevenue());
+        Assert.assertEquals(2, gasStation.getGasPumps().size());
+        Assert.assertEquals(9d, getRemainingAmount(gasStation, GasType.REGULAR));
+        Assert.assertEquals(2L, journal.getRecoveredState().getNextPumpId());
+
+        journal.close();
+
+    }
+
+    @Test
+    public void shouldRecoverFromTheLatestSnapshotReplayingOnlyTheRecordsAfterIt() throws Exception {
+
+        // Given
+        double maxPricePerLiter = 1.5d;
+        int salesBeforeSnapshot = 10;
+        int salesAfterSnapshot = 3;
+
+        Journal journal = Journal.open(directory, 4, Long.MAX_VALUE);
+        GasStationImpl gasStation = journal.recover(new GasStationImpl());
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 10d));
+        gasStation.setPrice(GasType.DIESEL, maxPricePerLiter);
+
+        // When
+        for (int i = 0; i < salesBeforeSnapshot; i++) {
+            gasStation.tryBuyGas(GasType.DIESEL, 0.1d, maxPricePerLiter);
+        }
+        journal.snapshot();
+        long segmentsAfterSnapshot = countFiles(".journal");
+
+        for (int i = 0; i < salesAfterSnapshot; i++) {
+            gasStation.tryBuyGas(GasType.DIESEL, 0.1d, maxPricePerLiter);
+        }
+        journal.flush();
+
+        // the first journal is still open, as if the station had crashed
+        Journal reopenedJournal = Journal.open(directory, 4, Long.MAX_VALUE);
+        GasStationImpl recoveredGasStation = reopenedJournal.recover(new GasStationImpl());
+
+        // Then
+        Assert.assertEquals(1L, countFiles(".snapshot"));
+        Assert.assertEquals(1L, segmentsAfterSnapshot);
+        Assert.assertEquals(2L * salesAfterSnapshot, reopenedJournal.getReplayedRecords()); // sale and gas pumped
+        Assert.assertEquals(salesBeforeSnapshot + salesAfterSnapshot, recoveredGasStation.getNumberOfSales());
+        Assert.assertEquals(gasStation.getRevenue(), recoveredGasStation.getRevenue());
+        Assert.assertEquals(8.7d, getRemainingAmount(recoveredGasStation, GasType.DIESEL), 1e-9);
+
+        reopenedJournal.close();
+        journal.close();
+
+    }
+
+    @Test
+    public void shouldRecoverTheTankFeedingThePumps() throws Exception {
+
+        // Given
+        Journal journal = Journal.open(directory);
+        GasStationImpl gasStation = journal.recover(new GasStationImpl());
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.addFuelTank(new FuelTank(GasType.DIESEL, 20d, 10d));
+        gasStation.setPrice(GasType.DIESEL, 1d);
+
+        // When
+        gasStation.tryBuyGas(GasType.DIESEL, 4d, 1d);
+        gasStation.deliverToFuelTank(GasType.DIESEL, 2.5d);
+        journal.snapshot();
+        gasStation.tryBuyGas(GasType.DIESEL, 0.5d, 1d);
+        journal.close();
+
+        journal = Journal.open(directory);
+        GasStationImpl recoveredGasStation = journal.recover(new GasStationImpl());
+
+        // Then
+        Assert.assertEquals(20d, recoveredGasStation.getFuelTank(GasType.DIESEL).getCapacity());
+        Assert.assertEquals(8d, recoveredGasStation.getFuelTank(GasType.DIESEL).getRemainingAmount());
+        Assert.assertEquals(1d, getRemainingAmount(recoveredGasStation, GasType.DIESEL));
+        Assert.assertEquals(2, recoveredGasStation.getNumberOfSales());
+
+        journal.close();
+
+    }
+
+    @Test
+    public void shouldRecoverTheLatestVersionOfThePricesEvenIfJournaledOutOfOrder() throws Exception {
+
+        // Given
+        Journal journal = Journal.open(directory);
+        GasStationImpl gasStation = journal.recover(new GasStationImpl());
+        long version = gasStation.getPriceTable().getVersion();
+
+        // two price changes whose listeners were called in the opposite order
+        journal.onPriceChanged(GasType.DIESEL, 2000000L, version + 2);
+        journal.onPriceChanged(GasType.DIESEL, 1000000L, version + 1);
+        journal.close();
+
+        journal = Journal.open(directory);
+        GasStationImpl recoveredGasStation = journal.recover(new GasStationImpl());
+        double recoveredPrice = recoveredGasStation.getPrice(GasType.DIESEL);
+        long recoveredVersion = journal.getRecoveredState().getPriceVersion(GasType.DIESEL);
+
+        // When
+        recoveredGasStation.setPrice(GasType.DIESEL, 1.25d);
+        journal.close();
+
+        journal = Journal.open(directory);
+        GasStationImpl restartedGasStation = journal.recover(new GasStationImpl());
+
+        // Then
+        Assert.assertEquals(2d, recoveredPrice);
+        Assert.assertEquals(1.25d, restartedGasStation.getPrice(GasType.DIESEL));
+        Assert.assertTrue(journal.getRecoveredState().getPriceVersion(GasType.DIESEL) > recoveredVersion);
+
+        journal.close();
+
+    }
+
+    @Test(timeout = 10000)
+    public void shouldKeepWritingAfterDrainingOnlyRecordsThatNoLongerMatter() throws Exception {
+
+        // Given
+        Journal journal = Journal.open(directory);
+        GasStationImpl gasStation = journal.recover(new GasStationImpl());
+
+        // When
+        // gas pumped by a pump the journal never saw is skipped, before any segment was opened
+        journal.onGasPumped(new GasPump(GasType.DIESEL, 1d), 500L);
+        journal.flush();
+
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+        journal.close();
+
+        journal = Journal.open(directory);
+        GasStationImpl recoveredGasStation = journal.recover(new GasStationImpl());
+
+        // Then
+        Assert.assertEquals(1.5d, recoveredGasStation.getPrice(GasType.DIESEL));
+
+        journal.close();
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldOnlyRecoverAGasStationWithoutPumps() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = new GasStationImpl();
+        gasStation.addGasPump(new GasPump(GasType.REGULAR, 10d));
+
+        Journal journal = Journal.open(directory);
+
+        // When
+        try {
+            journal.recover(gasStation);
+        } finally {
+            journal.close();
+        }
+
+        // Then
+
+        // Exception !!!
+
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldRefuseASnapshotOfAnotherFormat() throws Exception {
+
+        // Given
+        Files.createDirectories(directory);
+        DataOutputStream snapshot = new DataOutputStream(Files.newOutputStream(directory
+                .resolve("00000000000000000010.snapshot")));
+        try {
+            snapshot.writeInt(0x47535353); // "GSSS"
+            snapshot.writeInt(2);
+        } finally {
+            snapshot.close();
+        }
+
+        // When
+        Journal.open(directory);
+
+        // Then
+
+        // Exception !!!
+
+    }
+
+    private long countFiles(String suffix) throws IOException {
+
+        long count = 0;
+
+        DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + suffix);
+        try {
+            for (Path file : files) {
+                count++;
+            }
+        } finally {
+            files.close();
+        }
+
+        return count;
+    }
+
+    private static double getRemainingAmount(GasStationImpl gasStation, GasType type) {
+
+        double remainingAmount = 0d;
+
+        for (GasPump gasPump : gasStation.getGasPumps()) {
+            if (gasPump.getGasType() == type) {
+                remainingAmount += gasPump.getRemainingAmount();
+            }
+        }
+
+        return remainingAmount;
+    }
+
+}
@@ -0,0 +1,203 @@
+package net.bigpoint.assessment.gasstation.logging.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.logging.EventLog;
+import net.bigpoint.assessment.gasstation.logging.LogEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+
+/**
+ *
+ * This class contains the unit tests for class EventLog
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class EventLogTest {
+
+    private Logger loggerMock;
+    private EventLog eventLog;
+
+    @Before
+    public void setup() {
+
+        loggerMock = Mockito.mock(Logger.class);
+        eventLog = new EventLog(4);
+        eventLog.setConsoleOutputEnabled(false);
+
+    }
+
+    @After
+    public void tearDown() {
+
+        eventLog.close();
+
+    }
+
+    @Test
+    public void shouldFormatTheLinesWhenWritingThem() throws Exception {
+
+        // Given
+        eventLog.record(loggerMock, LogEvent.FILLING_UP, "Jack", GasType.SUPER, 30d, 1.5d);
+        eventLog.record(loggerMock, LogEvent.NOT_ENOUGH_GAS, "Jack", GasType.SUPER);
+        eventLog.record(loggerMock, LogEvent.REVENUE, GasType.DIESEL, 1000d);
+
+        // When
+        eventLog.flush();
+
+        // Then
+        Mockito.verify(loggerMock, Mockito.times(1)).info(
+                "Jack: Trying to fill some gas up. I need 30 liters of SUPER and I will pay 1.5 euros max.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info(
+                "Jack: Oops, there is no enough SUPER gas on this gas station.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Earned 1,000 euros for DIESEL.");
+        Assert.assertEquals(3L, eventLog.getNumberOfWrittenEvents());
+
+    }
+
+    @Test
+    public void shouldKeepBlankLinesForTheConsole() throws Exception {
+
+        // Given
+        eventLog.record(loggerMock, LogEvent.STATS_PER_GAS_TYPE_HEADER);
+
+        // When
+        eventLog.flush();
+
+        // Then
+        Mockito.verifyZeroInteractions(loggerMock);
+        Assert.assertEquals(1L, eventLog.getNumberOfWrittenEvents());
+
+    }
+
+    @Test
+    public void shouldDropEventsInsteadOfWaitingWhenFull() throws Exception {
+
+        // Given
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch appenderReleased = new CountDownLatch(1);
+
+        Logger slowLoggerMock = Mockito.mock(Logger.class);
+        Mockito.doAnswer(new Answer<Void>() {
+
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                writing.countDown();
+                appenderReleased.await();
+                return null;
+            }
+        }).when(slowLoggerMock).info(Mockito.anyString());
+
+        eventLog.record(slowLoggerMock, LogEvent.TOTALS_HEADER);
+        writing.await();
+
+        // When
+        boolean[] recorded = new boolean[4];
+        for (int i = 0; i < recorded.length; i++) {
+            recorded[i] = eventLog.record(loggerMock, LogEvent.TOTAL_SALES, null, i);
+        }
+
+        appenderReleased.countDown();
+        eventLog.flush();
+
+        // Then
+        Assert.assertTrue(recorded[0]);
+        Assert.assertTrue(recorded[2]);
+        Assert.assertFalse(recorded[3]);
+        Assert.assertEquals(1L, eventLog.getNumberOfDroppedEvents());
+        Assert.assertEquals(4L, eventLog.getNumberOfWrittenEvents());
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Performed 2 successful sales.");
+
+    }
+
+    @Test
+    public void shouldCountTheEventsALoggerFailedToWrite() throws Exception {
+
+        // Given
+        Logger failingLoggerMock = Mockito.mock(Logger.class);
+        Mockito.doThrow(new IllegalStateException("appender closed")).when(failingLoggerMock).info(
+                Mockito.anyString());
+
+        eventLog.record(failingLoggerMock, LogEvent.TOTALS_HEADER);
+        eventLog.record(loggerMock, LogEvent.TOTAL_SALES, null, 2d);
+
+        // When
+        eventLog.flush();
+
+        // Then
+        Assert.assertEquals(1L, eventLog.getNumberOfFailedEvents());
+        Assert.assertEquals(2L, eventLog.getNumberOfWrittenEvents());
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Performed 2 successful sales.");
+
+    }
+
+    @Test
+    public void shouldDropEventsOnceClosed() throws Exception {
+
+        // Given
+        eventLog.record(loggerMock, LogEvent.PUMP_STATUS, GasType.REGULAR, 60d);
+
+        // When
+        eventLog.close();
+        boolean recorded = eventLog.record(loggerMock, LogEvent.PUMPS_HEADER);
+
+        // Then
+        Assert.assertFalse(recorded);
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Gas pump serving REGULAR. 60 liters of gas remaining.");
+
+    }
+
+    @Test(timeout = 30000)
+    public void shouldWriteEveryEventRecordedBeforeClosingWhileThreadsKeepRecording() throws Exception {
+
+        // Given
+        final int numberOfThreads = 4;
+        final EventLog busyEventLog = new EventLog(1024);
+        busyEventLog.setConsoleOutputEnabled(false);
+
+        final AtomicBoolean recording = new AtomicBoolean(true);
+        final AtomicLong attempts = new AtomicLong();
+        final AtomicLong recorded = new AtomicLong();
+        Thread[] threads = new Thread[numberOfThreads];
+
+        for (int i = 0; i < numberOfThreads; i++) {
+            threads[i] = new Thread(new Runnable() {
+
+                public void run() {
+                    while (recording.get()) {
+                        attempts.incrementAndGet();
+                        // a blank line, which never reaches the logger
+                        if (busyEventLog.record(loggerMock, LogEvent.STATS_PER_GAS_TYPE_HEADER)) {
+                            recorded.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        Thread.sleep(100);
+
+        // When
+        busyEventLog.close();
+        recording.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Then
+        Assert.assertEquals(recorded.get(), busyEventLog.getNumberOfWrittenEvents());
+        Assert.assertEquals(attempts.get(), recorded.get() + busyEventLog.getNumberOfDroppedEvents());
+
+    }
+
+}
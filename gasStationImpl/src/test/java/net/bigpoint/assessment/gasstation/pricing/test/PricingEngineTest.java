@@ -0,0 +1,186 @@
+package net.bigpoint.assessment.gasstation.pricing.test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.StationListener;
+import net.bigpoint.assessment.gasstation.pricing.PricingEngine;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * This class contains the unit tests for class PricingEngine
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class PricingEngineTest {
+
+    private GasStationImpl gasStation;
+    private PricingEngine pricingEngine;
+
+    @Before
+    public void setup() {
+
+        gasStation = new GasStationImpl();
+        pricingEngine = new PricingEngine();
+        pricingEngine.addGasStation(gasStation);
+        pricingEngine.setPriceRange(GasType.DIESEL, 1d, 2d);
+
+    }
+
+    @After
+    public void tearDown() {
+
+        pricingEngine.close();
+
+    }
+
+    @Test
+    public void shouldRaiseThePriceWhenTheGasLeftWouldNotLastTheTargetCoverage() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 2d));
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+        gasStation.buyGas(GasType.DIESEL, 1d, 2d);
+
+        // When
+        int repriced = pricingEngine.reprice();
+
+        // Then
+        // one liter sold in the last minute and one left, far less than an hour
+        Assert.assertEquals(1, repriced);
+        Assert.assertEquals(1.53d, gasStation.getPrice(GasType.DIESEL));
+
+    }
+
+    @Test
+    public void shouldLowerThePriceWhenTooManyCustomersFindItTooExpensive() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 101d));
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+        gasStation.buyGas(GasType.DIESEL, 1d, 2d);
+        int repricedOnTarget = pricingEngine.reprice();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            gasStation.tryBuyGas(GasType.DIESEL, 1d, 1d);
+        }
+        int repriced = pricingEngine.reprice();
+
+        // Then
+        // a hundred liters left at a liter per minute is within the target coverage
+        Assert.assertEquals(0, repricedOnTarget);
+        Assert.assertEquals(1, repriced);
+        Assert.assertEquals(1.47d, gasStation.getPrice(GasType.DIESEL));
+
+    }
+
+    @Test
+    public void shouldKeepThePricesWithinTheirRangeAndLeaveTheOtherGasTypesAlone() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1001d));
+        gasStation.setPrice(GasType.DIESEL, 1.01d);
+        gasStation.setPrice(GasType.SUPER, 1.5d);
+        gasStation.tryBuyGas(GasType.DIESEL, 1d, 2d);
+        gasStation.tryBuyGas(GasType.SUPER, 1d, 1d);
+
+        // When
+        pricingEngine.reprice();
+
+        // Then
+        // a thousand liters left at a liter per minute, so the price goes down, but not below the range
+        Assert.assertEquals(1d, gasStation.getPrice(GasType.DIESEL));
+        Assert.assertEquals(1.5d, gasStation.getPrice(GasType.SUPER));
+        Assert.assertEquals(0, pricingEngine.reprice());
+
+    }
+
+    @Test
+    public void shouldLeaveThePriceAloneWithoutAnyCustomer() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1000d));
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+
+        // When
+        int repriced = pricingEngine.reprice();
+
+        // Then
+        // plenty of gas left, but nobody tried to buy it
+        Assert.assertEquals(0, repriced);
+        Assert.assertEquals(1.5d, gasStation.getPrice(GasType.DIESEL));
+
+    }
+
+    @Test
+    public void shouldRepriceEveryGasStationOnASchedule() throws Exception {
+
+        // Given
+        // every gas station turns a customer away as too expensive
+        for (int i = 0; i < 1000; i++) {
+            GasStationImpl otherGasStation = new GasStationImpl();
+            otherGasStation.setPrice(GasType.DIESEL, 2d);
+            otherGasStation.tryBuyGas(GasType.DIESEL, 1d, 1d);
+            pricingEngine.addGasStation(otherGasStation);
+        }
+        gasStation.setPrice(GasType.DIESEL, 2d);
+        gasStation.tryBuyGas(GasType.DIESEL, 1d, 1d);
+
+        // When
+        pricingEngine.scheduleRepricing(10L, TimeUnit.MILLISECONDS);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pricingEngine.getNumberOfRepricings() < 1001L && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then
+        Assert.assertTrue(pricingEngine.getNumberOfRepricings() >= 1001L);
+        Assert.assertTrue(gasStation.getPrice(GasType.DIESEL) < 2d);
+
+    }
+
+    @Test
+    public void shouldKeepRepricingOnAScheduleAfterAPassFailed() throws Exception {
+
+        // Given
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 2d));
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+        gasStation.buyGas(GasType.DIESEL, 1d, 2d);
+
+        final AtomicBoolean failed = new AtomicBoolean();
+        gasStation.addStationListener(new StationListener() {
+
+            @Override
+            public void onPriceChanged(GasType type, long microEurosPerLiter, long version) {
+                if (failed.compareAndSet(false, true)) {
+                    throw new IllegalStateException("price board unreachable");
+                }
+            }
+        });
+
+        // When
+        pricingEngine.scheduleRepricing(10L, TimeUnit.MILLISECONDS);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pricingEngine.getNumberOfRepricings() < 1L && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Then
+        Assert.assertTrue(failed.get());
+        Assert.assertTrue(pricingEngine.getNumberOfRepricings() >= 1L);
+
+    }
+
+}
@@ -0,0 +1,217 @@
+package net.bigpoint.assessment.gasstation.registry.test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasStation;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
+import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+import net.bigpoint.assessment.gasstation.registry.StationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * This class contains the unit tests for class StationRegistry
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class StationRegistryTest {
+
+    private StationRegistry registry;
+
+    @Before
+    public void setup() {
+
+        registry = new StationRegistry(1000, 4);
+
+    }
+
+    @Test
+    public void shouldHostManyIndependentStations() throws Exception {
+
+        // Given
+        for (int i = 0; i < 1000; i++) {
+            GasStation gasStation = registry.createStation();
+            gasStation.setPrice(GasType.DIESEL, 1d + i / 1000d);
+        }
+
+        // When
+        GasStation first = registry.getStation(0);
+        GasStation last = registry.getStation(999);
+
+        // Then
+        Assert.assertEquals(1000, registry.getNumberOfStations());
+        Assert.assertEquals(1d, first.getPrice(GasType.DIESEL));
+        Assert.assertEquals(1.999d, last.getPrice(GasType.DIESEL));
+        Assert.assertEquals(0d, last.getPrice(GasType.SUPER));
+
+    }
+
+    @Test
+    public void shouldKeepTheFiguresOfEachStationAndOfTheWholeChain() throws Exception {
+
+        // Given
+        GasStation gasStation1 = registry.createStation();
+        GasStation gasStation2 = registry.createStation();
+
+        gasStation1.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation2.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation2.addGasPump(new GasPump(GasType.SUPER, 1d));
+
+        gasStation1.setPrice(GasType.DIESEL, 1.5d);
+        gasStation2.setPrice(GasType.DIESEL, 1.4d);
+        gasStation2.setPrice(GasType.SUPER, 1.6d);
+
+        // When
+        double actualPrice1 = gasStation1.buyGas(GasType.DIESEL, 1d, 2d);
+        double actualPrice2 = gasStation2.buyGas(GasType.DIESEL, 0.5d, 2d);
+        double actualPrice3 = gasStation2.buyGas(GasType.SUPER, 0.5d, 2d);
+
+        // Then
+        Assert.assertEquals(1.5d, actualPrice1);
+        Assert.assertEquals(0.7d, actualPrice2);
+        Assert.assertEquals(0.8d, actualPrice3);
+
+        Assert.assertEquals(1, gasStation1.getGasPumps().size());
+        Assert.assertEquals(2, gasStation2.getGasPumps().size());
+        Assert.assertEquals(1.5d, gasStation1.getRevenue());
+        Assert.assertEquals(1.5d, gasStation2.getRevenue());
+        Assert.assertEquals(0.8d, gasStation2.getRevenue(GasType.SUPER));
+        Assert.assertEquals(1, gasStation1.getNumberOfSales());
+        Assert.assertEquals(2, gasStation2.getNumberOfSales());
+        Assert.assertEquals(0.5d, gasStation2.getAmountSold(GasType.DIESEL));
+
+        Assert.assertEquals(1.5d, registry.getTotalAmountSold(GasType.DIESEL));
+        Assert.assertEquals(3d, registry.getTotalRevenue());
+        Assert.assertEquals(3L, registry.getTotalNumberOfSales());
+
+    }
+
+    @Test
+    public void shouldCountTheCancellationsOfEachStation() throws Exception {
+
+        // Given
+        GasStation gasStation = registry.createStation();
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+        gasStation.setPrice(GasType.DIESEL, 1.5d);
+
+        // When
+        try {
+            gasStation.buyGas(GasType.DIESEL, 1d, 1d);
+            Assert.fail("The gas should have been too expensive");
+        } catch (GasTooExpensiveException e) {
+            // expected
+        }
+        try {
+            gasStation.buyGas(GasType.DIESEL, 2d, 2d);
+            Assert.fail("There should not have been enough gas");
+        } catch (NotEnoughGasException e) {
+            // expected
+        }
+        try {
+            gasStation.buyGas(GasType.SUPER, 1d, 2d);
+            Assert.fail("There should not have been any super");
+        } catch (NotEnoughGasException e) {
+            // expected
+        }
+
+        // Then
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsTooExpensive());
+        Assert.assertEquals(2, gasStation.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsNoGas(GasType.SUPER));
+        Assert.assertEquals(0, gasStation.getNumberOfSales());
+        Assert.assertEquals(2L, registry.getTotalNumberOfCancellationsNoGas());
+        Assert.assertEquals(1L, registry.getTotalNumberOfCancellationsTooExpensive());
+
+    }
+
+    @Test
+    public void shouldNotSellTheSameGasTwice() throws Exception {
+
+        // Given
+        GasStation gasStation = registry.createStation();
+        gasStation.addGasPump(new GasPump(GasType.REGULAR, 1d));
+
+        // When
+        gasStation.buyGas(GasType.REGULAR, 0.6d, 1d);
+
+        // Then
+        try {
+            gasStation.buyGas(GasType.REGULAR, 0.6d, 1d);
+            Assert.fail("The pump should only have 0.4 liters left");
+        } catch (NotEnoughGasException e) {
+            // expected
+        }
+
+    }
+
+    @Test
+    public void shouldNotLockOnTheGasPumpOfTheCaller() throws Exception {
+
+        // Given
+        final GasStation gasStation = registry.createStation();
+        GasPump gasPump = new GasPump(GasType.DIESEL, 1d);
+        gasStation.addGasPump(gasPump);
+
+        // When
+        double price;
+        synchronized (gasPump) {
+            price = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return gasStation.buyGas(GasType.DIESEL, 1d, 0d);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(5, TimeUnit.SECONDS);
+        }
+
+        // Then
+        Assert.assertEquals(0d, price);
+        Assert.assertEquals(0d, gasPump.getRemainingAmount());
+
+    }
+
+    @Test
+    public void shouldRefuseStationsAndPumpsBeyondItsCapacity() throws Exception {
+
+        // Given
+        StationRegistry smallRegistry = new StationRegistry(1, 1);
+        GasStation gasStation = smallRegistry.createStation();
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 1d));
+
+        // Then
+        try {
+            smallRegistry.createStation();
+            Assert.fail("The registry should be full");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            gasStation.addGasPump(new GasPump(GasType.SUPER, 1d));
+            Assert.fail("The station should be full");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Assert.assertEquals(1, smallRegistry.getNumberOfStations());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRefuseACapacityThatDoesNotFitInItsColumns() throws Exception {
+
+        // When
+        new StationRegistry(1 << 20, 1 << 12);
+
+        // Then
+
+        // Exception !!!
+
+    }
+
+}
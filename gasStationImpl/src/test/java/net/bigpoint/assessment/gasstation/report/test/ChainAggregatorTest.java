@@ -0,0 +1,170 @@
+package net.bigpoint.assessment.gasstation.report.test;
+
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.FuelOrder;
+import net.bigpoint.assessment.gasstation.extension.PurchaseStatus;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.StationListener;
+import net.bigpoint.assessment.gasstation.report.ChainAggregator;
+import net.bigpoint.assessment.gasstation.report.ChainTotals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * This class contains the unit tests for class ChainAggregator
+ *
+ * @author Juan P. Sánchez
+ *
+ */
+public class ChainAggregatorTest {
+
+    private ChainAggregator chainAggregator;
+
+    @Before
+    public void setup() {
+
+        chainAggregator = new ChainAggregator();
+
+    }
+
+    private static GasStationImpl newGasStation(double price) {
+
+        GasStationImpl gasStation = new GasStationImpl();
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 2d));
+        gasStation.setPrice(GasType.DIESEL, price);
+        return gasStation;
+    }
+
+    @Test
+    public void shouldAddUpTheChainAndEachRegion() throws Exception {
+
+        // Given
+        GasStationImpl north1 = newGasStation(1.5d);
+        GasStationImpl north2 = newGasStation(1.5d);
+        GasStationImpl south = newGasStation(2d);
+
+        chainAggregator.addGasStation("north", north1);
+        chainAggregator.addGasStation("north", north2);
+        chainAggregator.addGasStation("south", south);
+
+        north1.buyGas(GasType.DIESEL, 1d, 2d);
+        north2.buyGas(GasType.DIESEL, 0.5d, 2d);
+        south.buyGas(GasType.DIESEL, 1d, 2d);
+        Assert.assertEquals(PurchaseStatus.TOO_EXPENSIVE, south.tryBuyGas(GasType.DIESEL, 1d, 1d).getStatus());
+
+        // When
+        int refreshedStations = chainAggregator.refresh();
+
+        // Then
+        ChainTotals chainTotals = chainAggregator.getChainTotals();
+        ChainTotals northTotals = chainAggregator.getRegionTotals("north");
+        ChainTotals southTotals = chainAggregator.getRegionTotals("south");
+
+        Assert.assertEquals(3, refreshedStations);
+        Assert.assertEquals(Arrays.asList("north", "south"), chainAggregator.getRegions());
+
+        Assert.assertEquals(3, chainTotals.getNumberOfStations());
+        Assert.assertEquals(4.25d, chainTotals.getRevenue());
+        Assert.assertEquals(2.5d, chainTotals.getAmountSold(GasType.DIESEL));
+        Assert.assertEquals(3L, chainTotals.getNumberOfSales());
+        Assert.assertEquals(1L, chainTotals.getNumberOfCancellationsTooExpensive());
+
+        Assert.assertEquals(2, northTotals.getNumberOfStations());
+        Assert.assertEquals(2.25d, northTotals.getRevenue(GasType.DIESEL));
+        Assert.assertEquals(0L, northTotals.getNumberOfCancellationsTooExpensive());
+        Assert.assertEquals(2d, southTotals.getRevenue());
+        Assert.assertEquals(0d, chainAggregator.getRegionTotals("east").getRevenue());
+
+    }
+
+    @Test
+    public void shouldOnlyRefreshTheStationsThatChanged() throws Exception {
+
+        // Given
+        GasStationImpl[] gasStations = new GasStationImpl[10];
+        for (int i = 0; i < gasStations.length; i++) {
+            gasStations[i] = newGasStation(1d);
+            chainAggregator.addGasStation("region" + (i % 2), gasStations[i]);
+        }
+        chainAggregator.refresh();
+
+        // When
+        gasStations[3].buyGas(GasType.DIESEL, 0.5d, 1d);
+        gasStations[3].buyGas(GasType.DIESEL, 0.5d, 1d);
+        gasStations[4].tryBuyGas(GasType.DIESEL, 5d, 1d);
+
+        int refreshedStations = chainAggregator.refresh();
+        int refreshedAgain = chainAggregator.refresh();
+
+        // Then
+        ChainTotals chainTotals = chainAggregator.getChainTotals();
+
+        Assert.assertEquals(2, refreshedStations);
+        Assert.assertEquals(0, refreshedAgain);
+        Assert.assertEquals(10, chainTotals.getNumberOfStations());
+        Assert.assertEquals(1d, chainTotals.getRevenue());
+        Assert.assertEquals(2L, chainTotals.getNumberOfSales());
+        Assert.assertEquals(1L, chainTotals.getNumberOfCancellationsNoGas(GasType.DIESEL));
+        Assert.assertEquals(1d, chainAggregator.getRegionTotals("region1").getRevenue());
+        Assert.assertEquals(1L, chainAggregator.getRegionTotals("region0").getNumberOfCancellationsNoGas());
+
+    }
+
+    @Test
+    public void shouldNotMissABatchRefreshedWhileItIsBeingSold() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = newGasStation(1d);
+        chainAggregator.addGasStation("north", gasStation);
+        chainAggregator.refresh();
+
+        // refreshes as soon as the station tells about the first order of the batch
+        gasStation.addStationListener(new StationListener() {
+
+            @Override
+            public void onSale(GasType type, long milliliters, long microEuros) {
+                chainAggregator.refresh();
+            }
+        });
+
+        // When
+        gasStation.buyGasBatch(Arrays.asList(new FuelOrder(GasType.DIESEL, 0.5d, 1d), new FuelOrder(GasType.DIESEL,
+                0.5d, 1d), new FuelOrder(GasType.DIESEL, 1d, 0.5d)));
+        chainAggregator.refresh();
+
+        // Then
+        ChainTotals chainTotals = chainAggregator.getChainTotals();
+
+        Assert.assertEquals(1d, chainTotals.getRevenue());
+        Assert.assertEquals(2L, chainTotals.getNumberOfSales());
+        Assert.assertEquals(1L, chainTotals.getNumberOfCancellationsTooExpensive());
+
+    }
+
+    @Test
+    public void shouldHandOutTotalsThatDoNotChangeAfterwards() throws Exception {
+
+        // Given
+        GasStationImpl gasStation = newGasStation(1d);
+        chainAggregator.addGasStation("north", gasStation);
+        chainAggregator.refresh();
+
+        ChainTotals before = chainAggregator.getChainTotals();
+
+        // When
+        gasStation.buyGas(GasType.DIESEL, 1d, 1d);
+        chainAggregator.refresh();
+
+        // Then
+        Assert.assertEquals(0d, before.getRevenue());
+        Assert.assertEquals(1d, chainAggregator.getChainTotals().getRevenue());
+
+    }
+
+}
@@ -0,0 +1,120 @@
+package net.bigpoint.assessment.gasstation.simulation.test;
+
+import junit.framework.Assert;
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.simulation.CustomerSimulation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * This class contains the unit tests for class CustomerSimulation
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class CustomerSimulationTest {
+
+    private GasStationImpl gasStation;
+    private CustomerSimulation simulation;
+
+    @Before
+    public void setup() {
+
+        gasStation = new GasStationImpl();
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 100d));
+        gasStation.addGasPump(new GasPump(GasType.DIESEL, 100d));
+        gasStation.addGasPump(new GasPump(GasType.SUPER, 100d));
+        gasStation.setPrice(GasType.DIESEL, 1.3d);
+        gasStation.setPrice(GasType.SUPER, 1.5d);
+
+        simulation = new CustomerSimulation(gasStation);
+        simulation.setSeed(42L);
+
+    }
+
+    @Test
+    public void shouldWaitForEveryCustomerToLeave() throws Exception {
+
+        // Given
+        int numberOfCustomers = 200;
+
+        // When
+        simulation.setNumberOfRandomCustomers(numberOfCustomers);
+        simulation.setFuelMix(GasType.REGULAR, 0d);
+        simulation.setLitersNeeded(0.05d, 0.1d);
+        simulation.setMaxMoneyPerLiter(1.4d, 1.6d);
+
+        simulation.run();
+
+        int actualNumberOfCustomers = gasStation.getNumberOfSales() + gasStation.getNumberOfCancellationsNoGas()
+                + gasStation.getNumberOfCancellationsTooExpensive();
+
+        // Then
+        Assert.assertEquals(numberOfCustomers, actualNumberOfCustomers);
+        Assert.assertEquals(0, gasStation.getNumberOfCancellationsNoGas());
+        Assert.assertEquals(0, gasStation.getNumberOfSales(GasType.REGULAR));
+        Assert.assertEquals(0, gasStation.getNumberOfCancellationsTooExpensive(GasType.DIESEL));
+
+    }
+
+    @Test
+    public void shouldLetCustomersArriveAtTheGivenRate() throws Exception {
+
+        // Given
+        int numberOfCustomers = 50;
+        double arrivalsPerSecond = 100d;
+
+        long minimumElapsedMillis = 250; // half a second expected, leaving room for randomness
+
+        // When
+        simulation.setNumberOfRandomCustomers(numberOfCustomers);
+        simulation.setArrivalsPerSecond(arrivalsPerSecond);
+        simulation.setLitersNeeded(0.01d, 0.02d);
+
+        long actualElapsedMillis = simulation.run();
+
+        // Then
+        Assert.assertTrue(actualElapsedMillis >= minimumElapsedMillis);
+
+    }
+
+    @Test
+    public void shouldServeScriptedCustomers() throws Exception {
+
+        // When
+        simulation.addCustomer("Ralph", 1d, 1.4d, GasType.DIESEL);
+        simulation.addCustomer("Mary", 1d, 1.4d, GasType.SUPER);
+
+        simulation.run();
+
+        // Then
+        Assert.assertEquals(1, gasStation.getNumberOfSales(GasType.DIESEL));
+        Assert.assertEquals(1, gasStation.getNumberOfCancellationsTooExpensive(GasType.SUPER));
+
+    }
+
+    @Test
+    public void shouldRefuseAFuelMixWithoutAnyGasType() throws Exception {
+
+        // Given
+        simulation.setFuelMix(GasType.REGULAR, 0d);
+        simulation.setFuelMix(GasType.SUPER, 0d);
+
+        // When
+        try {
+            simulation.setFuelMix(GasType.DIESEL, 0d);
+            Assert.fail("Random customers should have some gas type to pick");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // Then
+        Assert.assertEquals(1d, simulation.getFuelMix(GasType.DIESEL));
+
+    }
+
+}
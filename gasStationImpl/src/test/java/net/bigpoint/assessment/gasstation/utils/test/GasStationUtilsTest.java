@@ -6,6 +6,7 @@ import java.util.Collection;
 import net.bigpoint.assessment.gasstation.GasPump;
 import net.bigpoint.assessment.gasstation.GasStation;
 import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.StationSnapshot;
 import net.bigpoint.assessment.gasstation.utils.GasStationUtils;
 
 import org.junit.Before;
@@ -139,4 +140,35 @@ public class GasStationUtilsTest {
 
     }
 
+    @Test
+    public void shouldShowStatsFromASnapshot() {
+
+        // Given
+        StationSnapshot snapshot = new StationSnapshot(1L, new double[] { 700d, 600d, 500d }, new double[] { 1400d,
+                1200d, 1000d }, new int[] { 22, 20, 15 }, new int[] { 7, 5, 4 }, new int[] { 1, 1, 2 }, new double[] {
+                1.4d, 1.5d, 1.3d }, new GasType[] { GasType.DIESEL }, new double[] { 40d });
+
+        // When
+        GasStationUtils.setLogger(loggerMock);
+        GasStationUtils.showStatsPerGasType(snapshot);
+        GasStationUtils.showStatsTotals(snapshot);
+        GasStationUtils.showPumpsStatus(snapshot);
+
+        // Then
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Sold 500 liters of DIESEL.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Earned 1,200 euros for SUPER.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Performed 22 successful sales for REGULAR.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info(
+                "Cancelled 4 sales for DIESEL due to insufficient gas available.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info(
+                "Cancelled 2 sales for DIESEL due the gas being too expensive.");
+
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Earned 3,600 euros in total.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Performed 57 successful sales.");
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Cancelled 16 sales due to insufficient gas available.");
+
+        Mockito.verify(loggerMock, Mockito.times(1)).info("Gas pump serving DIESEL. 40 liters of gas remaining.");
+
+    }
+
 }
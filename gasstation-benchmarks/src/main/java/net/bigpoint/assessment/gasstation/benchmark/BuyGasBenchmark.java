@@ -0,0 +1,96 @@
+package net.bigpoint.assessment.gasstation.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.bigpoint.assessment.gasstation.GasStation;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.exceptions.GasTooExpensiveException;
+import net.bigpoint.assessment.gasstation.exceptions.NotEnoughGasException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * This class measures buyGas throughput and latency for successful sales, sales of mixed gas types, sales rejected
+ * because the gas is too expensive and sales rejected because there is not enough gas, on every implementation of
+ * GasStation. The operations only ExtendedGasStation offers are measured by ExtendedGasStationBenchmark. Run it with -t
+ * to vary the number of customers buying at the same time.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuyGasBenchmark {
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    // enough for any benchmark run, so successful sales never run out of gas
+    private static final double LITERS_PER_PUMP = 1.0e9d;
+
+    private static final double LITERS_PER_SALE = 1d;
+
+    @Param({ "first-fit", "least-busy", "registered" })
+    public String implementation;
+
+    @Param({ "0" })
+    public long pumpDelayMicrosPerLiter;
+
+    @Param({ "4" })
+    public int pumpsPerGasType;
+
+    private GasStation gasStation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        gasStation = GasStations.create(implementation, new DelayedGasPumpDriver(pumpDelayMicrosPerLiter));
+        GasStations.equip(gasStation, pumpsPerGasType, LITERS_PER_PUMP);
+    }
+
+    @Benchmark
+    public double buySingleGasType() throws Exception {
+        return gasStation.buyGas(GasType.DIESEL, LITERS_PER_SALE, GasStations.PRICE_PER_LITER);
+    }
+
+    @Benchmark
+    public double buyMixedGasTypes() throws Exception {
+        GasType gasType = GAS_TYPES[ThreadLocalRandom.current().nextInt(GAS_TYPES.length)];
+        return gasStation.buyGas(gasType, LITERS_PER_SALE, GasStations.PRICE_PER_LITER);
+    }
+
+    @Benchmark
+    public Object buyTooExpensive() throws Exception {
+        try {
+            return gasStation.buyGas(GasType.DIESEL, LITERS_PER_SALE, GasStations.PRICE_PER_LITER / 2);
+        } catch (GasTooExpensiveException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object buyWithoutEnoughGas() throws Exception {
+        try {
+            return gasStation.buyGas(GasType.DIESEL, LITERS_PER_PUMP * 2, GasStations.PRICE_PER_LITER);
+        } catch (NotEnoughGasException e) {
+            return e;
+        }
+    }
+
+}
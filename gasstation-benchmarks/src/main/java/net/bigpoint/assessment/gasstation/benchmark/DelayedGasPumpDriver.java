@@ -0,0 +1,59 @@
+package net.bigpoint.assessment.gasstation.benchmark;
+
+import java.util.concurrent.locks.LockSupport;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.impl.GasPumpDriver;
+
+/**
+ * 
+ * This class pumps gas with a configurable delay instead of the 100 milliseconds per liter simulated by GasPump, so
+ * that benchmarks measure the gas station logic rather than Thread.sleep.
+ * 
+ * GasPump is final and always sleeps, so the driver sets the interrupt flag of the current thread before calling
+ * pumpGas(double): the pump still updates its remaining amount, but its sleep returns at once and the pump swallows
+ * the interruption. The original interrupt status of the thread is restored afterwards.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public class DelayedGasPumpDriver implements GasPumpDriver {
+
+    private final long delayNanosPerLiter;
+
+    /**
+     * @param delayMicrosPerLiter
+     *            how long pumping one liter takes, zero for no delay at all
+     */
+    public DelayedGasPumpDriver(long delayMicrosPerLiter) {
+        this.delayNanosPerLiter = delayMicrosPerLiter * 1000L;
+    }
+
+    public void pumpGas(GasPump gasPump, double amountInLiters) {
+
+        boolean interrupted = Thread.interrupted();
+
+        Thread.currentThread().interrupt();
+        gasPump.pumpGas(amountInLiters);
+        Thread.interrupted(); // in case the pump did not sleep at all
+
+        if (delayNanosPerLiter > 0) {
+            LockSupport.parkNanos((long) (amountInLiters * delayNanosPerLiter));
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The gas comes from a tank, so the pump is left alone and only the delay is simulated.
+     */
+    public void meterGas(GasPump gasPump, double amountInLiters) {
+
+        if (delayNanosPerLiter > 0) {
+            LockSupport.parkNanos((long) (amountInLiters * delayNanosPerLiter));
+        }
+    }
+
+}
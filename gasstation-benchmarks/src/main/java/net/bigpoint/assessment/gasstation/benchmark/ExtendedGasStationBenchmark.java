@@ -0,0 +1,104 @@
+package net.bigpoint.assessment.gasstation.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.ExtendedGasStation;
+import net.bigpoint.assessment.gasstation.extension.FuelOrder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 
+ * This class measures the operations only ExtendedGasStation offers: sales rejected because the gas is too expensive
+ * and sales rejected because there is not enough gas through the non-throwing tryBuyGas, and the orders of a fleet
+ * bought one by one compared with bought through buyGasBatch, per order. Run it with -t to vary the number of
+ * customers buying at the same time.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtendedGasStationBenchmark {
+
+    private static final GasType[] GAS_TYPES = GasType.values();
+
+    // enough for any benchmark run, so successful sales never run out of gas
+    private static final double LITERS_PER_PUMP = 1.0e9d;
+
+    private static final double LITERS_PER_SALE = 1d;
+
+    private static final int ORDERS_PER_FLEET = 24;
+
+    @Param({ "first-fit", "least-busy" })
+    public String implementation;
+
+    @Param({ "0" })
+    public long pumpDelayMicrosPerLiter;
+
+    @Param({ "4" })
+    public int pumpsPerGasType;
+
+    private ExtendedGasStation gasStation;
+
+    private List<FuelOrder> fleetOrders;
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        gasStation = GasStations.createExtended(implementation, new DelayedGasPumpDriver(pumpDelayMicrosPerLiter));
+        GasStations.equip(gasStation, pumpsPerGasType, LITERS_PER_PUMP);
+
+        fleetOrders = new ArrayList<FuelOrder>();
+        for (int i = 0; i < ORDERS_PER_FLEET; i++) {
+            GasType gasType = GAS_TYPES[i % GAS_TYPES.length];
+            fleetOrders.add(new FuelOrder(gasType, LITERS_PER_SALE, GasStations.PRICE_PER_LITER));
+        }
+    }
+
+    @Benchmark
+    public Object tryBuyTooExpensive() {
+        return gasStation.tryBuyGas(GasType.DIESEL, LITERS_PER_SALE, GasStations.PRICE_PER_LITER / 2);
+    }
+
+    @Benchmark
+    public Object tryBuyWithoutEnoughGas() {
+        return gasStation.tryBuyGas(GasType.DIESEL, LITERS_PER_PUMP * 2, GasStations.PRICE_PER_LITER);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_FLEET)
+    public void buyFleetOneByOne(Blackhole blackhole) {
+        for (FuelOrder order : fleetOrders) {
+            blackhole.consume(gasStation.tryBuyGas(order.getGasType(), order.getAmountInLiters(),
+                    order.getMaxPricePerLiter()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_FLEET)
+    public Object buyFleetAsBatch() {
+        return gasStation.buyGasBatch(fleetOrders);
+    }
+
+}
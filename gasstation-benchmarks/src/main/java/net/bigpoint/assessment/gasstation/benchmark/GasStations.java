@@ -0,0 +1,75 @@
+package net.bigpoint.assessment.gasstation.benchmark;
+
+import net.bigpoint.assessment.gasstation.GasPump;
+import net.bigpoint.assessment.gasstation.GasStation;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.ExtendedGasStation;
+import net.bigpoint.assessment.gasstation.impl.GasPumpDriver;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.impl.PumpSelectionStrategy;
+import net.bigpoint.assessment.gasstation.registry.StationRegistry;
+
+/**
+ * 
+ * This class builds the gas stations compared by the benchmarks. Every implementation of GasStation worth measuring
+ * gets a name here, which benchmarks take as a parameter. Benchmarks of the operations of ExtendedGasStation can only
+ * take the names of the implementations of that interface, see createExtended(String, GasPumpDriver).
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+public final class GasStations {
+
+    public static final double PRICE_PER_LITER = 1.5d;
+
+    // the registry only hosts the station being measured
+    private static final int MAX_PUMPS_PER_REGISTERED_STATION = 256;
+
+    private GasStations() {
+    }
+
+    public static GasStation create(String implementation, GasPumpDriver driver) {
+
+        if ("registered".equals(implementation)) {
+            return new StationRegistry(1, MAX_PUMPS_PER_REGISTERED_STATION, driver).createStation();
+        }
+
+        return createExtended(implementation, driver);
+    }
+
+    public static ExtendedGasStation createExtended(String implementation, GasPumpDriver driver) {
+
+        if ("first-fit".equals(implementation)) {
+            return new GasStationImpl(PumpSelectionStrategy.FIRST_FIT, driver);
+        }
+        if ("best-fit".equals(implementation)) {
+            return new GasStationImpl(PumpSelectionStrategy.BEST_FIT, driver);
+        }
+        if ("least-busy".equals(implementation)) {
+            return new GasStationImpl(PumpSelectionStrategy.LEAST_BUSY, driver);
+        }
+        if ("round-robin".equals(implementation)) {
+            return new GasStationImpl(PumpSelectionStrategy.ROUND_ROBIN, driver);
+        }
+
+        throw new IllegalArgumentException("Unknown gas station implementation: " + implementation);
+    }
+
+    /**
+     * Adds the given number of pumps for every gas type, each with the given amount of gas, and sets the same price
+     * for every gas type.
+     */
+    public static void equip(GasStation gasStation, int pumpsPerGasType, double litersPerPump) {
+
+        for (int i = 0; i < pumpsPerGasType; i++) {
+            for (GasType gasType : GasType.values()) {
+                gasStation.addGasPump(new GasPump(gasType, litersPerPump));
+            }
+        }
+
+        for (GasType gasType : GasType.values()) {
+            gasStation.setPrice(gasType, PRICE_PER_LITER);
+        }
+    }
+
+}
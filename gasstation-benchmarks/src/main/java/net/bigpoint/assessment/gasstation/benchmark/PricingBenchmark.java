@@ -0,0 +1,72 @@
+package net.bigpoint.assessment.gasstation.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.impl.GasStationImpl;
+import net.bigpoint.assessment.gasstation.pricing.PricingEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * This class measures how long a PricingEngine takes to reprice a whole chain of gas stations in one pass. Every gas
+ * station has sold some SUPER, so its price goes up, while the other gas types keep their prices for lack of customers.
+ * The prices reach the edges of their ranges after a few passes, so most passes measure reading the figures of every
+ * gas station, which every pass pays, rather than publishing new prices.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int numberOfGasStations;
+
+    private PricingEngine pricingEngine;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        pricingEngine = new PricingEngine();
+        for (GasType gasType : GasType.values()) {
+            pricingEngine.setPriceRange(gasType, 1d, 2d);
+        }
+
+        for (int i = 0; i < numberOfGasStations; i++) {
+            GasStationImpl gasStation = (GasStationImpl) GasStations.create("first-fit", new DelayedGasPumpDriver(0L));
+            GasStations.equip(gasStation, 1, 10d);
+            gasStation.buyGas(GasType.SUPER, 1d, GasStations.PRICE_PER_LITER);
+            pricingEngine.addGasStation(gasStation);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pricingEngine.close();
+    }
+
+    @Benchmark
+    public int reprice() {
+        return pricingEngine.reprice();
+    }
+
+}
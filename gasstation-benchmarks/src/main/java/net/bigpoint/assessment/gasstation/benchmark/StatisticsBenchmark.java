@@ -0,0 +1,98 @@
+package net.bigpoint.assessment.gasstation.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import net.bigpoint.assessment.gasstation.GasStation;
+import net.bigpoint.assessment.gasstation.GasType;
+import net.bigpoint.assessment.gasstation.extension.ExtendedGasStation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 
+ * This class measures how statistics polling behaves while customers keep buying gas: one thread sells and three poll
+ * the figures, either through the eleven getters of GasStation or through a single snapshot.
+ * 
+ * @author Juan P. Sánchez
+ * 
+ */
+@State(Scope.Group)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatisticsBenchmark {
+
+    private static final double LITERS_PER_PUMP = 1.0e9d;
+
+    @Param({ "first-fit" })
+    public String implementation;
+
+    @Param({ "0" })
+    public long pumpDelayMicrosPerLiter;
+
+    private GasStation gasStation;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        gasStation = GasStations.create(implementation, new DelayedGasPumpDriver(pumpDelayMicrosPerLiter));
+        GasStations.equip(gasStation, 1, LITERS_PER_PUMP);
+    }
+
+    @Benchmark
+    @Group("getters")
+    @GroupThreads(1)
+    public double sellWhilePollingGetters() throws Exception {
+        return gasStation.buyGas(GasType.SUPER, 1d, GasStations.PRICE_PER_LITER);
+    }
+
+    @Benchmark
+    @Group("getters")
+    @GroupThreads(3)
+    public double pollGetters() {
+
+        double total = gasStation.getRevenue() + gasStation.getNumberOfSales()
+                + gasStation.getNumberOfCancellationsNoGas() + gasStation.getNumberOfCancellationsTooExpensive();
+
+        for (GasType gasType : GasType.values()) {
+            total += gasStation.getAmountSold(gasType) + gasStation.getRevenue(gasType)
+                    + gasStation.getNumberOfSales(gasType) + gasStation.getNumberOfCancellationsNoGas(gasType)
+                    + gasStation.getNumberOfCancellationsTooExpensive(gasType);
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public double sellWhilePollingSnapshots() throws Exception {
+        return gasStation.buyGas(GasType.SUPER, 1d, GasStations.PRICE_PER_LITER);
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public Object pollSnapshot() {
+
+        if (gasStation instanceof ExtendedGasStation) {
+            return ((ExtendedGasStation) gasStation).getSnapshot();
+        }
+        return pollGetters();
+    }
+
+}